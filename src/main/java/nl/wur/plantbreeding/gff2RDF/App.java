@@ -30,26 +30,11 @@
 
 package nl.wur.plantbreeding.gff2RDF;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.Enumeration;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 
@@ -94,6 +79,16 @@ public class App {
                 return;
             }
 
+            ModelIO mio = new ModelIO();
+            mio.setStreaming(options.isStream());
+            mio.setStore(options.getStore());
+            mio.setNamedGraphs(options.isNamedGraphs());
+            if (options.getFormat() != null) {
+                mio.setFormat(options.getFormat());
+            }
+            mio.setCompress(options.isGzip());
+            ObjectToModel.setBatchSize(options.getBatchSize());
+
             if (options.isArabidopsis()) {
                 ArabidopsisAction aa;
                 if (options.getFolder() != null
@@ -102,6 +97,8 @@ public class App {
                 } else {
                     aa = new ArabidopsisAction();
                 }
+                aa.setModelIO(mio);
+                aa.setIncremental(options.isIncremental());
                 aa.download(options.isForceDl());
                 if (!options.isDlOnly()) {
                     aa.main(options.isDebug());
@@ -116,8 +113,12 @@ public class App {
                 } else {
                     pa = new PotatoAction();
                 }
+                pa.setModelIO(mio);
+                pa.setIncremental(options.isIncremental());
                 pa.download(options.isForceDl());
-                pa.unzipFiles(options.isForceUnzip());
+                if (!options.isKeepCompressed()) {
+                    pa.unzipFiles(options.isForceUnzip());
+                }
                 if (!options.isDlOnly()) {
                     pa.main(options.isDebug());
                 }
@@ -131,6 +132,8 @@ public class App {
                 } else {
                     ta = new TomatoAction();
                 }
+                ta.setModelIO(mio);
+                ta.setIncremental(options.isIncremental());
                 ta.download(options.isForceDl());
                 if (!options.isDlOnly()) {
                     ta.main(options.isDebug());
@@ -146,6 +149,7 @@ public class App {
                 } else {
                     ma = new MapAction();
                 }
+                ma.setModelIO(mio);
                 if (!options.isDlOnly()) {
                     ma.main(options.getMap(), false, options.isDebug());
                 }
@@ -160,6 +164,7 @@ public class App {
                 } else {
                     ma = new MapAction();
                 }
+                ma.setModelIO(mio);
                 if (!options.isDlOnly()) {
                     ma.main(options.getPhysicalMap(), true, options.isDebug());
                 }
@@ -167,8 +172,11 @@ public class App {
 
             if (options.isPpi()) {
                 PPIAction ppia = new PPIAction();
+                ppia.setModelIO(mio);
+                ppia.setEvidence(options.isPpiEvidence());
                 ppia.download(options.isForceDl());
                 if (!options.isDlOnly()) {
+                    ppia.setFilter(options.getPpiFilter());
                     ppia.main(options.isDebug());
                 }
             }
@@ -204,36 +212,11 @@ public class App {
      * present locally
      * @throws MalformedURLException if there is a problem in the URL.
      * @throws IOException if something goes wrong while writing the file
+     * @see DownloadManager
      */
     public static void downaloadFile(String urlstring, String outputfile, boolean force)
             throws MalformedURLException, IOException {
-        System.out.println("Trying to download file: '" + outputfile
-                + "' from :\n " + urlstring);
-        File f = new File(outputfile);
-        if (f.exists() && !force) {
-            System.out.println("  -- no need");
-            LOG.log(Level.FINE, "The file {0} already exists, no need to re-download it",
-                    outputfile);
-            return;
-        }
-        URL url = new URL(urlstring);
-        int ByteRead, ByteWritten = 0;
-        OutputStream outStream = new BufferedOutputStream(
-                new FileOutputStream(outputfile));
-
-        URLConnection uCon = url.openConnection();
-        InputStream is = uCon.getInputStream();
-        byte[] buf = new byte[1024];
-        while ((ByteRead = is.read(buf)) != -1) {
-            outStream.write(buf, 0, ByteRead);
-            ByteWritten += ByteRead;
-        }
-        is.close();
-        outStream.close();
-//        URL url = new URL(urlstring);
-//        ReadableByteChannel rbc = Channels.newChannel(url.openStream());
-//        FileOutputStream fos = new FileOutputStream(outputfile);
-//        fos.getChannel().transferFrom(rbc, 0, 1 << 24);
+        new DownloadManager(force).download(urlstring, outputfile);
     }
 
     /**
@@ -255,42 +238,6 @@ public class App {
         }
     }
 
-    /**
-     * This method remove all illegal characters from a file.
-     *
-     * This is needed for the gene description file from Arabidopsis which
-     * contains character making the generation of the RDF impossible.
-     * @param filename the string of the name of the file to read.
-     * @throws IOException if something goes wrong while reading/writing.
-     */
-    public static void cleanFile(String filename) throws IOException {
-        System.out.println("Cleanning file: " + filename);
-        final FileInputStream fstream = new FileInputStream(filename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br = new BufferedReader(new InputStreamReader(in));
-        FileWriter fstreamout = new FileWriter(filename + "-cleaned");
-        BufferedWriter out = new BufferedWriter(fstreamout);
-
-        String strline = "";
-        while ((strline = br.readLine()) != null) {
-            // We need to split the line as otherwise we loos all the tabs
-            String[] words = strline.split("\t");
-            String newline = "";
-            for (String word : words) {
-                word = word.replaceAll("[^\\x20-\\x7e]", "");
-                if (newline.equals("")) {
-                    newline = word;
-                } else {
-                    newline = newline + "\t" + word;
-                }
-            }
-            out.write(newline + "\n");
-        }
-        out.close();
-        br.close();
-    }
-
     /**
      * This function extract a specified zip archive.
      * @param inputfile String of the url of the file
@@ -302,26 +249,8 @@ public class App {
      */
     public static void extractZipFile(String inputfile, String folder,
             boolean force) throws IOException {
-        System.out.println("Trying to extract files from: '" + inputfile);
-        ZipFile zf = new ZipFile(inputfile);
-        Enumeration e = zf.entries();
-        while (e.hasMoreElements()) {
-            ZipEntry ze = (ZipEntry) e.nextElement();
-            File f = new File(folder + "/" + ze.getName());
-            if (f.exists() && !force) {
-                System.out.println("  -- no need");
-                LOG.log(Level.FINE, "The file {0} already exists, no need to re-download it",
-                        folder + "/" + ze.getName());
-                return;
-            }
-            System.out.println("  Unzipping: " + folder + "/" + ze.getName());
-            FileOutputStream fout = new FileOutputStream(folder + "/" + ze.getName());
-            InputStream in = zf.getInputStream(ze);
-            for (int c = in.read(); c != -1; c = in.read()) {
-                fout.write(c);
-            }
-            in.close();
-            fout.close();
-        }
+        ZipExtractor extractor = new ZipExtractor(folder, force);
+        extractor.add(inputfile);
+        extractor.extractAll();
     }
 }
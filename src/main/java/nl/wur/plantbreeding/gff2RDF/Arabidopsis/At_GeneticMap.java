@@ -31,14 +31,12 @@
 package nl.wur.plantbreeding.gff2RDF.Arabidopsis;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.ExcelIO;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
+import nl.wur.plantbreeding.gff2RDF.SheetRow;
 import nl.wur.plantbreeding.gff2RDF.object.Marker;
 
 /**
@@ -61,7 +59,7 @@ public class At_GeneticMap {
      * This method parses the genetic map to extract the genetic position of
      * the marker in the map and add them to the model returned.
      *
-     * @param inputfilename the path to the input file the genetic map
+     * @param inputfilename the path to the input file the genetic map, in CSV
      * @param model a Jena model in which the gene information will be stored
      * @return a Jena model containing with its previous information the
      * information about the marker in the genetic map
@@ -73,45 +71,52 @@ public class At_GeneticMap {
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
 
-        ObjectToModel obj2m = new ObjectToModel();
+        ExcelIO.readCsv(inputfilename, ',', this.getRowHandler(model));
 
-        int cnt = 0;
-        int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        Marker marker = null;
-        //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.replace("\"", "");
-            strline = strline.trim();
-            String[] content = strline.split(",");
-            if (content.length > 1 && cnt > 1) {
-                marker = new Marker();
-                marker.setName(content[0].trim());
-                marker.setChromosome(content[1].trim());
-                marker.setPosition(content[2].trim());
+        return model;
+    }
+
+    /**
+     * Return a RowHandler adding the markers of the rows of the genetic map
+     * sheet to the given model, to read the sheet directly from the excel
+     * file (see ExcelIO.readSheets).
+     * The two first rows are the header of the sheet, the next ones give
+     * the name, chromosome and position of a marker.
+     *
+     * @param model a Jena model in which the marker information will be stored
+     * @return the RowHandler filling the model
+     */
+    public final ExcelIO.RowHandler getRowHandler(final Model model) {
+        final ObjectToModel obj2m = new ObjectToModel();
+        return new ExcelIO.RowHandler() {
+            /** Number of markers found. */
+            private int genecnt = 0;
+
+            @Override
+            public void handleRow(final SheetRow row) {
+                if (row.size() < 3 || row.getRowNum() < 2) {
+                    return;
+                }
+                final Marker marker = new Marker();
+                marker.setName(row.getTrimmed(0));
+                marker.setChromosome(row.getTrimmed(1));
+                marker.setPosition(row.getTrimmed(2));
 
                 // Add marker to model
-                model = obj2m.addToModel(marker, model);
-                genecnt = genecnt + 1;
+                obj2m.addToModel(marker, model);
+                this.genecnt = this.genecnt + 1;
             }
-            cnt = cnt + 1;
-        }
-        in.close();
-
-        if (marker != null) {
-            // add marker to model here
-            model = obj2m.addToModel(marker, model);
-        }
 
-        LOG.log(Level.FINE, cnt + " lines read");
-        LOG.log(Level.FINE, genecnt + " markers found");
-        LOG.log(Level.FINE, "Model has size: " + model.size());
+            @Override
+            public void endSheet() {
+                // Add the statements still pending to the model
+                obj2m.flush();
 
-        return model;
+                LOG.log(Level.FINE, this.genecnt + " markers found");
+                LOG.log(Level.FINE, obj2m.getAvoidedAdds()
+                        + " redundant statements avoided");
+                LOG.log(Level.FINE, "Model has size: " + model.size());
+            }
+        };
     }
 }
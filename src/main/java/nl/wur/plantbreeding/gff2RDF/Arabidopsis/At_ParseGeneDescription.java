@@ -31,15 +31,16 @@
 package nl.wur.plantbreeding.gff2RDF.Arabidopsis;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.GeneIdSet;
+import nl.wur.plantbreeding.gff2RDF.InputSource;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
+import nl.wur.plantbreeding.gff2RDF.PrintableInputStream;
 
 /**
  * This class parses the functional description file and
@@ -75,32 +76,28 @@ public class At_ParseGeneDescription {
 
         int cnt = 0;
         int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        ArrayList<String> genes = new ArrayList<String>();
+        // The non-printable characters are removed while reading
+        final LineReader br = new LineReader(new InputStreamReader(
+                new PrintableInputStream(InputSource.open(inputfilename)),
+                "US-ASCII"));
+        final FieldCursor content = new FieldCursor('\t');
+        final GeneIdSet genes = new GeneIdSet();
         String geneid = null;
         String description = null;
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 1 && cnt > 1) {
-                geneid = content[0].split("\\.")[0];
-                if (!genes.contains(geneid)) {
-                    genes.add(geneid);
-                    if (content.length == 2) {
-                        description = content[1];
-                    } else if (content.length == 3) {
-                        description = content[2];
+        while (br.next()) {
+            content.reset(br, true);
+            if (content.size() > 1 && cnt > 1) {
+                geneid = content.before(0, '.');
+                if (genes.add(geneid)) {
+                    if (content.size() == 2) {
+                        description = content.get(1);
+                    } else if (content.size() == 3) {
+                        description = content.get(2);
+                    } else if (content.isEmpty(3)) {
+                        description = content.get(4);
                     } else {
-                        description = content[3];
-                        if (content[3] == null || content[3].isEmpty()) {
-                            description = content[4];
-                        }
+                        description = content.get(3);
                     }
                     // Add gene to model
                     model = obj2m.addGeneDescriptionToModel(geneid,
@@ -110,7 +107,7 @@ public class At_ParseGeneDescription {
             }
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
 
         if (geneid != null) {
             // add gene to model here
@@ -118,6 +115,9 @@ public class At_ParseGeneDescription {
                     model);
         }
 
+        // Add the statements still pending to the model
+        obj2m.flush();
+
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, genecnt + " genes found");
         LOG.log(Level.FINE, "Model has size: " + model.size());
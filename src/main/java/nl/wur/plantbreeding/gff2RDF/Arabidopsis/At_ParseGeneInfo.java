@@ -31,13 +31,12 @@
 package nl.wur.plantbreeding.gff2RDF.Arabidopsis;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.ChunkedFileParser;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.GffAttributes;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 import nl.wur.plantbreeding.gff2RDF.object.Gene;
 
@@ -53,7 +52,8 @@ import nl.wur.plantbreeding.gff2RDF.object.Gene;
  * As format may change, the parser may need changes for futur release.
  * @author Pierre-Yves Chibon -- py@chibon.fr
  */
-public class At_ParseGeneInfo {
+public class At_ParseGeneInfo
+        implements ChunkedFileParser.LineParser<Gene> {
 
     /** Logger used for outputing log information. */
     private static final Logger LOG = Logger.getLogger(
@@ -77,54 +77,66 @@ public class At_ParseGeneInfo {
      * @throws IOException When something goes wrong with a file.
      */
     public final Model getModelFromGff(final String inputfilename,
-            Model model) throws IOException {
+            final Model model) throws IOException {
 
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
 
-        ObjectToModel obj2m = new ObjectToModel();
-
-        int cnt = 0;
-        int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        Gene gene = null;
-        //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 3 && content[2].equalsIgnoreCase("gene")) {
-                gene = new Gene();
-                gene.setChromosome(content[0].trim());
-                gene.addPosition(content[3], content[4]);
-                String locus = content[content.length - 1].split(
-                        "ID=")[1].split(";")[0];
-                gene.setLocus(locus);
-                String function = content[content.length - 1].split(
-                        "Note=")[1].split(";")[0];
-                gene.setDescription(function);
+        final ObjectToModel obj2m = new ObjectToModel();
 
+        // Parse the file in parallel, the genes are added in the file order
+        final Gene[] gene = new Gene[1];
+        ChunkedFileParser<Gene> reader = new ChunkedFileParser<Gene>(this);
+        int genecnt = reader.parse(inputfilename,
+                new ChunkedFileParser.RecordHandler<Gene>() {
+            @Override
+            public void addRecord(final Gene tmpgene) {
+                gene[0] = tmpgene;
                 // Add gene to model
-                model = obj2m.addToModel(gene, model);
-                genecnt = genecnt + 1;
+                obj2m.addToModel(tmpgene, model);
             }
-            cnt = cnt + 1;
-        }
-        in.close();
+        });
+        int cnt = reader.getLineCount();
 
-        if (gene != null) {
+        if (gene[0] != null) {
             // add gene to model here
-            model = obj2m.addToModel(gene, model);
+            obj2m.addToModel(gene[0], model);
         }
 
+        // Add the statements still pending to the model
+        obj2m.flush();
+
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, genecnt + " genes found");
+        LOG.log(Level.FINE, obj2m.getAvoidedAdds()
+                + " redundant statements avoided");
         LOG.log(Level.FINE, "Model has size: " + model.size());
 
         return model;
     }
+
+    /**
+     * Parse one line of the GFF file and return the gene it describes.
+     * @param line a line of the GFF file.
+     * @param content a FieldCursor to use to read the line.
+     * @param attributes a GffAttributes to use to read the attributes.
+     * @return the Gene described on this line or null if the line does not
+     * describe a gene.
+     */
+    @Override
+    public final Gene parseLine(final CharSequence line,
+            final FieldCursor content, final GffAttributes attributes) {
+        content.reset(line, true);
+        if (content.size() > 3 && content.equalsIgnoreCase(2, "gene")) {
+            Gene gene = new Gene();
+            gene.setChromosome(content.getTrimmed(0));
+            gene.addPosition(content.parseInt(3), content.parseInt(4));
+            final int last = content.size() - 1;
+            attributes.reset(line, content.start(last), content.end(last));
+            gene.setLocus(attributes.get("ID"));
+            gene.setDescription(attributes.get("Note"));
+            return gene;
+        }
+        return null;
+    }
 }
@@ -31,13 +31,11 @@
 package nl.wur.plantbreeding.gff2RDF.Arabidopsis;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 
 /**
@@ -76,25 +74,23 @@ public class At_ParseGeneProtein {
         ObjectToModel obj2m = new ObjectToModel();
 
         int cnt = 0;
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        String strline;
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
+        while (br.next()) {
+            content.reset(br, true);
             At_GeneProtein agp = new At_GeneProtein();
             // We keep only the content before the "."
-            String locus = content[0].trim().split("\\.")[0];
+            String locus = content.before(0, '.').trim();
             agp.setLocus(locus);
-            agp.setProtein(content[1].trim());
+            agp.setProtein(content.getTrimmed(1));
             model = obj2m.addToModel(agp, model);
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
+
+        // Add the statements still pending to the model
+        obj2m.flush();
 
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, "Final model has size: " + model.size());
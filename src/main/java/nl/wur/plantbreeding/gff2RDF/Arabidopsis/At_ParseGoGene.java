@@ -31,13 +31,11 @@
 package nl.wur.plantbreeding.gff2RDF.Arabidopsis;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 import nl.wur.plantbreeding.gff2RDF.object.Gene;
 
@@ -85,21 +83,16 @@ public class At_ParseGoGene {
 
         int cnt = 0;
         int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
         Gene gene = null;
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 1 && content[0].startsWith("AT")) {
+        while (br.next()) {
+            content.reset(br, true);
+            if (content.size() > 1 && content.startsWith(0, "AT")) {
                 gene = new Gene();
-                gene.setLocus(content[0].trim());
-                gene.addGoTerm(content[5].trim());
+                gene.setLocus(content.getTrimmed(0));
+                gene.addGoTerm(content.getTrimmed(5));
 
                 // Add gene to model
                 model = obj2m.addToModel(gene, model);
@@ -107,15 +100,20 @@ public class At_ParseGoGene {
             }
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
 
         if (gene != null) {
             // add gene to model here
             model = obj2m.addToModel(gene, model);
         }
 
+        // Add the statements still pending to the model
+        obj2m.flush();
+
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, genecnt + " genes found");
+        LOG.log(Level.FINE, obj2m.getAvoidedAdds()
+                + " redundant statements avoided");
         LOG.log(Level.FINE, "Model has size: " + model.size());
 
         return model;
@@ -31,10 +31,11 @@
 package nl.wur.plantbreeding.gff2RDF;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -65,6 +66,10 @@ public class ArabidopsisAction {
 
     /** Folder in which the files are/will be stored. */
     private String folder = "At_files/";
+    /** ModelIO used to create and save the model. */
+    private ModelIO mio = new ModelIO();
+    /** Whether the sources whose files did not change are read from cache. */
+    private boolean incremental = false;
 
     /**
      * Default constructor.
@@ -94,6 +99,23 @@ public class ArabidopsisAction {
         this.folder = tmpfolder;
     }
 
+    /**
+     * Set the ModelIO used to create and save the model.
+     * @param tmpmio the ModelIO to use.
+     */
+    public void setModelIO(ModelIO tmpmio) {
+        this.mio = tmpmio;
+    }
+
+    /**
+     * Set whether the sources whose files did not change since the last run
+     * are read from the cache of the folder instead of being parsed again.
+     * @param tmpincremental a boolean, true to use the cache.
+     */
+    public void setIncremental(boolean tmpincremental) {
+        this.incremental = tmpincremental;
+    }
+
     /**
      * This function downloads the file of the Arabidopsis thaliana genome
      * annotation from TAIR.
@@ -128,13 +150,13 @@ public class ArabidopsisAction {
         urls.put("http://dbsgap.versailles.inra.fr/vnat/Documentation/8/CvixCol_MapCoord.xls",
                 this.folder + "CvixCol_MapCoord.xls");
 
+        DownloadManager manager = new DownloadManager(force);
         Set<String> urlset = urls.keySet();
-        int cnt = 0;
         for (Iterator<String> it = urlset.iterator(); it.hasNext();) {
             String key = it.next();
-            cnt = cnt + 1;
-            App.downaloadFile(key, urls.get(key), force);
+            manager.add(key, urls.get(key));
         }
+        manager.downloadAll();
         System.out.println();
     }
 
@@ -142,126 +164,109 @@ public class ArabidopsisAction {
      * This function reads the downloaded files and conver their content into
      * an RDF model which is stored in a Jena Model object.
      *
+     * The files are independent from each other, they are parsed at the same
+     * time (see SourceScheduler) unless the model is streamed.
+     *
      * @param debug boolean to print the stack trace of the exceptions catched.
      */
-    public void main(boolean debug) {
-        Model model = ModelFactory.createDefaultModel();
-        String inputfilename = "";
-
+    public void main(final boolean debug) {
+        String outputfilename = this.folder + "genemodel";
+        Model model;
         try {
-            // GFF file containing the gene information
-            inputfilename = this.folder + "TAIR10_GFF3_genes.gff";
-            At_ParseGeneInfo parser = new At_ParseGeneInfo();
-            model = parser.getModelFromGff(inputfilename, model);
+            model = this.mio.createModel(outputfilename);
         } catch (IOException ex) {
             System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
+            LOG.log(Level.SEVERE, "Error while opening: {0}", ex.getMessage());
             if (debug) {
                 ex.printStackTrace(System.err);
             }
+            return;
         }
 
-        try {
-            // File containing the gene description
-            inputfilename = this.folder + "TAIR10_functional_descriptions";
-            App.cleanFile(inputfilename);
-            inputfilename = inputfilename + "-cleaned";
-            At_ParseGeneDescription parser = new At_ParseGeneDescription();
-            model = parser.addGeneDescriptionToModel(inputfilename, model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
-            }
+        SourceScheduler scheduler = new SourceScheduler();
+        scheduler.setModelIO(this.mio);
+        scheduler.setParallel(this.mio.isInMemory());
+        if (this.incremental) {
+            scheduler.setCache(new BuildCache(this.folder + "cache"));
         }
 
-        try {
-            // GFF file containing GO annotation for genes
-            // used release from : 05/17/2011     06:33:00 AM
-            inputfilename = this.folder + "ATH_GO_GOSLIM.txt";
-            At_ParseGoGene parser = new At_ParseGoGene();
-            model = parser.getModelFromAthGo(inputfilename, model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        // GFF file containing the gene information
+        scheduler.add("TAIR10_GFF3_genes.gff", new SourceScheduler.FileSource(
+                folder + "TAIR10_GFF3_genes.gff", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                At_ParseGeneInfo parser = new At_ParseGeneInfo();
+                return parser.getModelFromGff(inputfilename, model);
             }
-        }
+        }, folder + "TAIR10_GFF3_genes.gff");
 
-        try {
-            // AGI2 Uniprot adding Gene Protein relation
-            inputfilename = this.folder + "AGI2Uniprot.20101118";
-            At_ParseGeneProtein parser = new At_ParseGeneProtein();
-            model = parser.getModelFromAGI2Uniprot(inputfilename, model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        // File containing the gene description
+        scheduler.add("TAIR10_functional_descriptions",
+                new SourceScheduler.FileSource(
+                folder + "TAIR10_functional_descriptions", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                At_ParseGeneDescription parser = new At_ParseGeneDescription();
+                return parser.addGeneDescriptionToModel(inputfilename, model);
             }
-        }
+        }, folder + "TAIR10_functional_descriptions");
 
-        try {
-            // Add physical location of the markers
-            inputfilename = this.folder + "CvixCol_Physic.csv";
-            ExcelIO.convertToCsv(this.folder + "CvixCol_MapCoord.xls",
-                    "CvixCol_Physic",
-                    this.folder + "CvixCol_Physic.csv");
-            At_PhysicalMap parser = new At_PhysicalMap();
-            model = parser.getModelFromPhysicalMap(inputfilename, model);
-        } catch (InvalidFormatException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "Invalid Format Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        // GFF file containing GO annotation for genes
+        // used release from : 05/17/2011     06:33:00 AM
+        scheduler.add("ATH_GO_GOSLIM.txt", new SourceScheduler.FileSource(
+                folder + "ATH_GO_GOSLIM.txt", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                At_ParseGoGene parser = new At_ParseGoGene();
+                return parser.getModelFromAthGo(inputfilename, model);
             }
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
-            }
-        }
+        }, folder + "ATH_GO_GOSLIM.txt");
 
-        try {
-            // Add genomic location of the markers
-            inputfilename = this.folder + "CvixCol_Genetic.csv";
-            ExcelIO.convertToCsv(this.folder + "CvixCol_MapCoord.xls",
-                    "CvixCol_Genetic",
-                    this.folder + "/CvixCol_Genetic.csv");
-            At_GeneticMap parser = new At_GeneticMap();
-            model = parser.getModelFromGeneticMap(inputfilename, model);
-        } catch (InvalidFormatException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "Invalid Format Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        // AGI2 Uniprot adding Gene Protein relation
+        scheduler.add("AGI2Uniprot.20101118", new SourceScheduler.FileSource(
+                folder + "AGI2Uniprot.20101118", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                At_ParseGeneProtein parser = new At_ParseGeneProtein();
+                return parser.getModelFromAGI2Uniprot(inputfilename, model);
             }
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        }, folder + "AGI2Uniprot.20101118");
+
+        // Add physical and genomic location of the markers, both sheets are
+        // read from the excel file in a single pass
+        scheduler.add("CvixCol_MapCoord.xls", new SourceScheduler.FileSource(
+                folder + "CvixCol_MapCoord.xls", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                System.out.println("Parsing: " + inputfilename
+                        + " and adding information to a model of size "
+                        + model.size());
+                Map<String, ExcelIO.RowHandler> sheets =
+                        new LinkedHashMap<String, ExcelIO.RowHandler>();
+                sheets.put("CvixCol_Physic",
+                        new At_PhysicalMap().getRowHandler(model));
+                sheets.put("CvixCol_Genetic",
+                        new At_GeneticMap().getRowHandler(model));
+                try {
+                    ExcelIO.readSheets(inputfilename, sheets);
+                } catch (InvalidFormatException ex) {
+                    throw new IOException("Invalid Format Error: "
+                            + ex.getMessage(), ex);
+                }
+                return model;
             }
-        }
+        }, folder + "CvixCol_MapCoord.xls");
+
+        model = scheduler.run(model);
 
-        System.out.println("Model final: " + model.size());
+        System.out.println("Model final: " + this.mio.size(model));
         try {
-            if (!model.isEmpty()) {
-                ModelIO mio = new ModelIO();
-                String outputfilename = this.folder + "genemodel.rdf";
-                mio.printModelToFile(model, outputfilename);
-            }
+            this.mio.saveModel(model, outputfilename);
         } catch (IOException ex) {
             System.err.println();
             LOG.log(Level.SEVERE, "Error while writting: {0}", ex.getMessage());
@@ -0,0 +1,635 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
+import com.hp.hpl.jena.util.iterator.WrappedIterator;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * This is a read-only Jena Graph stored in a compact binary file, in which
+ * each term is written once in a dictionary and the triples are written as
+ * the identifiers of their terms.
+ *
+ * The file is made of:
+ *   - a header giving the number of terms and triples and the position of
+ *     the other sections,
+ *   - the dictionary: the terms sorted, followed by the position of each of
+ *     them,
+ *   - the triples: three ints (subject, predicate, object) per triple,
+ *     sorted by subject, predicate and object.
+ *
+ * The file is mapped in memory and queried as it is, nothing is loaded: the
+ * identifier of a term is found by binary search in the dictionary and the
+ * triples of a subject by binary search in the triples. Wrapped into a Model
+ * (see ModelIO.readBinary) it can be queried as any other model.
+ * Files larger than 2GB are not supported.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class BinaryGraph extends GraphBase {
+
+    /** Number written at the beginning of the files ("GFFRDFB1"). */
+    private static final long MAGIC = 0x4746465244464231L;
+    /** Size in bytes of the header of the files. */
+    private static final int HEADER = 64;
+    /** Kind of the URI terms. */
+    private static final byte URI = 0;
+    /** Kind of the blank node terms. */
+    private static final byte BLANK = 1;
+    /** Kind of the plain literal terms (with or without language). */
+    private static final byte PLAIN = 2;
+    /** Kind of the typed literal terms. */
+    private static final byte TYPED = 3;
+    /** Charset of the strings of the terms. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Content of the file. */
+    private final ByteBuffer buffer;
+    /** Position of the data of the terms in the file. */
+    private final int data;
+    /** Position of the data of each term, relative to data. */
+    private final LongBuffer offsets;
+    /** Subject, predicate and object of each triple. */
+    private final IntBuffer triples;
+    /** Number of terms in the dictionary. */
+    private final int terms;
+    /** Number of triples. */
+    private final int count;
+
+    /**
+     * Constructor mapping the given file in memory.
+     * @param filename the path to a file written by write().
+     * @throws IOException When the file cannot be read or is not valid.
+     */
+    public BinaryGraph(final String filename) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(filename, "r");
+        try {
+            if (raf.length() > Integer.MAX_VALUE) {
+                throw new IOException(filename + " is too large to be mapped");
+            }
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    0, raf.length());
+        } finally {
+            raf.close();
+        }
+        if (this.buffer.limit() < HEADER || this.buffer.getLong(0) != MAGIC) {
+            throw new IOException(filename + " is not a binary RDF file");
+        }
+        this.terms = (int) this.buffer.getLong(8);
+        this.count = (int) this.buffer.getLong(16);
+        this.data = (int) this.buffer.getLong(24);
+        this.offsets = slice(this.buffer, (int) this.buffer.getLong(32),
+                8 * (this.terms + 1)).asLongBuffer();
+        this.triples = slice(this.buffer, (int) this.buffer.getLong(40),
+                12 * this.count).asIntBuffer();
+    }
+
+    /**
+     * Return a part of a buffer.
+     * @param tmpbuffer the buffer.
+     * @param position the position of the part.
+     * @param length the length of the part.
+     * @return the ByteBuffer of the part.
+     */
+    private static ByteBuffer slice(final ByteBuffer tmpbuffer,
+            final int position, final int length) {
+        final ByteBuffer tmp = tmpbuffer.duplicate();
+        tmp.position(position);
+        tmp.limit(position + length);
+        return tmp.slice();
+    }
+
+    /**
+     * Return the term of the dictionary with the given identifier.
+     * @param id the identifier of the term.
+     * @return the Node of the term.
+     */
+    public final Node getNode(final int id) {
+        final ByteBuffer tmp = this.buffer.duplicate();
+        tmp.position(this.data + (int) this.offsets.get(id));
+        final byte kind = tmp.get();
+        final String value = readString(tmp);
+        switch (kind) {
+            case URI:
+                return Node.createURI(value);
+            case BLANK:
+                return Node.createAnon(new AnonId(value));
+            case PLAIN:
+                return Node.createLiteral(value, readString(tmp), false);
+            default:
+                return Node.createLiteral(value, null, TypeMapper.getInstance()
+                        .getSafeTypeByName(readString(tmp)));
+        }
+    }
+
+    /**
+     * Return the identifier of a term in the dictionary.
+     * @param node the Node of the term.
+     * @return the identifier or -1 if the term is not in the dictionary.
+     */
+    public final int getId(final Node node) {
+        final Term term = new Term(node);
+        int low = 0;
+        int high = this.terms - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = this.readTerm(mid).compareTo(term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a term of the dictionary without creating its Node.
+     * @param id the identifier of the term.
+     * @return the Term.
+     */
+    private Term readTerm(final int id) {
+        final ByteBuffer tmp = this.buffer.duplicate();
+        tmp.position(this.data + (int) this.offsets.get(id));
+        final byte kind = tmp.get();
+        final String value = readString(tmp);
+        final String extra = kind >= PLAIN ? readString(tmp) : "";
+        return new Term(kind, value, extra);
+    }
+
+    /**
+     * Read a string written by writeString.
+     * @param tmp the buffer positioned on the string.
+     * @return the String.
+     */
+    private static String readString(final ByteBuffer tmp) {
+        final byte[] bytes = new byte[tmp.getInt()];
+        tmp.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Find the triples matching a pattern. When the subject is given, only
+     * its triples are read, otherwise all the triples are scanned.
+     * @param m the TripleMatch to look for.
+     * @return an iterator over the matching triples.
+     */
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(final TripleMatch m) {
+        final int[] ids = new int[3];
+        final Node[] pattern = {m.getMatchSubject(), m.getMatchPredicate(),
+            m.getMatchObject()};
+        for (int i = 0; i < 3; i++) {
+            ids[i] = -1;
+            if (pattern[i] != null && pattern[i].isConcrete()) {
+                ids[i] = this.getId(pattern[i]);
+                if (ids[i] < 0) {
+                    return NullIterator.instance();
+                }
+            }
+        }
+        int from = 0;
+        int to = this.count;
+        if (ids[0] >= 0) {
+            from = this.lowerBound(ids[0]);
+            to = this.lowerBound(ids[0] + 1);
+        }
+        return WrappedIterator.create(new Matches(ids, from, to));
+    }
+
+    /**
+     * Return the index of the first triple whose subject is at least the
+     * given one.
+     * @param subject the identifier of the subject.
+     * @return the index of the triple, count if there is none.
+     */
+    private int lowerBound(final int subject) {
+        int low = 0;
+        int high = this.count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (this.triples.get(3 * mid) < subject) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Return the number of triples of the graph.
+     * @return the number of triples.
+     */
+    @Override
+    protected int graphBaseSize() {
+        return this.count;
+    }
+
+    /**
+     * Iterator over the triples of a range matching the given identifiers.
+     */
+    private final class Matches implements Iterator<Triple> {
+
+        /** Identifiers of the subject, predicate and object, -1 for any. */
+        private final int[] ids;
+        /** Index of the next triple to test. */
+        private int next;
+        /** Index after the last triple to test. */
+        private final int end;
+        /** Next matching triple, null if not found yet. */
+        private Triple found = null;
+
+        /**
+         * Constructor.
+         * @param tmpids the identifiers to match, -1 for any.
+         * @param from the index of the first triple to test.
+         * @param to the index after the last triple to test.
+         */
+        private Matches(final int[] tmpids, final int from, final int to) {
+            this.ids = tmpids;
+            this.next = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (this.found == null && this.next < this.end) {
+                final int i = 3 * this.next;
+                this.next = this.next + 1;
+                final int s = triples.get(i);
+                final int p = triples.get(i + 1);
+                final int o = triples.get(i + 2);
+                if ((this.ids[0] < 0 || this.ids[0] == s)
+                        && (this.ids[1] < 0 || this.ids[1] == p)
+                        && (this.ids[2] < 0 || this.ids[2] == o)) {
+                    this.found = Triple.create(getNode(s), getNode(p),
+                            getNode(o));
+                }
+            }
+            return this.found != null;
+        }
+
+        @Override
+        public Triple next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Triple t = this.found;
+            this.found = null;
+            return t;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A term of the dictionary: its kind, its value (URI, label or lexical
+     * form) and, for the literals, its language or datatype.
+     * The terms are sorted by kind, value and then language or datatype.
+     */
+    private static final class Term implements Comparable<Term> {
+
+        /** Kind of the term. */
+        private final byte kind;
+        /** URI, blank node label or lexical form of the term. */
+        private final String value;
+        /** Language or datatype URI of a literal, empty otherwise. */
+        private final String extra;
+
+        /**
+         * Constructor.
+         * @param tmpkind the kind of the term.
+         * @param tmpvalue the value of the term.
+         * @param tmpextra the language or datatype of the term.
+         */
+        private Term(final byte tmpkind, final String tmpvalue,
+                final String tmpextra) {
+            this.kind = tmpkind;
+            this.value = tmpvalue;
+            this.extra = tmpextra;
+        }
+
+        /**
+         * Constructor of the term of a Node.
+         * @param node the Node (URI, blank node or literal).
+         */
+        private Term(final Node node) {
+            if (node.isURI()) {
+                this.kind = URI;
+                this.value = node.getURI();
+                this.extra = "";
+            } else if (node.isBlank()) {
+                this.kind = BLANK;
+                this.value = node.getBlankNodeLabel();
+                this.extra = "";
+            } else if (node.getLiteralDatatypeURI() == null) {
+                this.kind = PLAIN;
+                this.value = node.getLiteralLexicalForm();
+                this.extra = node.getLiteralLanguage();
+            } else {
+                this.kind = TYPED;
+                this.value = node.getLiteralLexicalForm();
+                this.extra = node.getLiteralDatatypeURI();
+            }
+        }
+
+        @Override
+        public int compareTo(final Term other) {
+            if (this.kind != other.kind) {
+                return this.kind < other.kind ? -1 : 1;
+            }
+            final int cmp = this.value.compareTo(other.value);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return this.extra.compareTo(other.extra);
+        }
+    }
+
+    /**
+     *
+     * Writing
+     *
+     */
+
+    /**
+     * Write all the triples of a graph into a binary file.
+     * @param graph the Graph to write.
+     * @param filename the path to the file to write.
+     * @return the number of triples written.
+     * @throws IOException When something goes wrong while writing the file.
+     */
+    public static long write(final Graph graph, final String filename)
+            throws IOException {
+        // Give a temporary identifier to each term, in order of appearance
+        final Map<Node, Integer> ids = new HashMap<Node, Integer>();
+        Node[] nodes = new Node[1024];
+        int[] spo = new int[3 * 1024];
+        int size = 0;
+        final ExtendedIterator<Triple> it = graph.find(Node.ANY, Node.ANY,
+                Node.ANY);
+        try {
+            while (it.hasNext()) {
+                final Triple t = it.next();
+                if (3 * size + 3 > spo.length) {
+                    spo = Arrays.copyOf(spo, spo.length * 2);
+                }
+                final Node[] tnodes = {t.getSubject(), t.getPredicate(),
+                    t.getObject()};
+                for (int k = 0; k < 3; k++) {
+                    final Node node = tnodes[k];
+                    Integer id = ids.get(node);
+                    if (id == null) {
+                        id = ids.size();
+                        if (id == nodes.length) {
+                            nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                        }
+                        nodes[id] = node;
+                        ids.put(node, id);
+                    }
+                    spo[3 * size + k] = id;
+                }
+                size = size + 1;
+            }
+        } finally {
+            it.close();
+        }
+
+        // Sort the dictionary and renumber the terms accordingly
+        final int nterms = ids.size();
+        final Term[] sorted = new Term[nterms];
+        final Integer[] order = new Integer[nterms];
+        for (int i = 0; i < nterms; i++) {
+            sorted[i] = new Term(nodes[i]);
+            order[i] = i;
+        }
+        nodes = null;
+        ids.clear();
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                return sorted[a].compareTo(sorted[b]);
+            }
+        });
+        final int[] rank = new int[nterms];
+        for (int i = 0; i < nterms; i++) {
+            rank[order[i]] = i;
+        }
+        for (int i = 0; i < 3 * size; i++) {
+            spo[i] = rank[spo[i]];
+        }
+        sortTriples(spo, 0, size - 1);
+
+        final RandomAccessFile raf = new RandomAccessFile(filename, "rw");
+        try {
+            raf.setLength(0);
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(
+                    raf.getChannel()), 1 << 16));
+            out.write(new byte[HEADER]);
+            long position = HEADER;
+            final long[] tmpoffsets = new long[nterms + 1];
+            for (int i = 0; i < nterms; i++) {
+                tmpoffsets[i] = position - HEADER;
+                final Term term = sorted[order[i]];
+                out.writeByte(term.kind);
+                position = position + 1 + writeString(term.value, out);
+                if (term.kind >= PLAIN) {
+                    position = position + writeString(term.extra, out);
+                }
+            }
+            tmpoffsets[nterms] = position - HEADER;
+            // Align the offsets and the triples
+            while (position % 8 != 0) {
+                out.writeByte(0);
+                position = position + 1;
+            }
+            final long offsetspos = position;
+            for (long offset : tmpoffsets) {
+                out.writeLong(offset);
+            }
+            final long triplespos = offsetspos + 8L * (nterms + 1);
+            int written = 0;
+            for (int i = 0; i < size; i++) {
+                final int j = 3 * i;
+                // Skip the duplicated triples
+                if (i > 0 && spo[j] == spo[j - 3] && spo[j + 1] == spo[j - 2]
+                        && spo[j + 2] == spo[j - 1]) {
+                    continue;
+                }
+                out.writeInt(spo[j]);
+                out.writeInt(spo[j + 1]);
+                out.writeInt(spo[j + 2]);
+                written = written + 1;
+            }
+            out.flush();
+
+            raf.seek(0);
+            raf.writeLong(MAGIC);
+            raf.writeLong(nterms);
+            raf.writeLong(written);
+            raf.writeLong(HEADER);
+            raf.writeLong(offsetspos);
+            raf.writeLong(triplespos);
+            return written;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Write a string as its length in bytes followed by its UTF-8 bytes.
+     * @param s the String to write.
+     * @param out the output to write into.
+     * @return the number of bytes written.
+     * @throws IOException When something goes wrong while writing.
+     */
+    private static int writeString(final String s, final DataOutputStream out)
+            throws IOException {
+        final byte[] bytes = s.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    /**
+     * Sort triples, stored as three consecutive ints, by subject, predicate
+     * and object (quicksort).
+     * @param spo the triples.
+     * @param low the index of the first triple to sort.
+     * @param high the index of the last triple to sort.
+     */
+    private static void sortTriples(final int[] spo, int low, int high) {
+        while (high - low > 16) {
+            final int pivot = 3 * (low + ((high - low) >>> 1));
+            final int ps = spo[pivot];
+            final int pp = spo[pivot + 1];
+            final int po = spo[pivot + 2];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(spo, 3 * i, ps, pp, po) < 0) {
+                    i++;
+                }
+                while (compare(spo, 3 * j, ps, pp, po) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(spo, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse on the smaller part to bound the depth
+            if (j - low < high - i) {
+                sortTriples(spo, low, j);
+                low = i;
+            } else {
+                sortTriples(spo, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low
+                    && compare(spo, 3 * j, spo[3 * j - 3], spo[3 * j - 2],
+                    spo[3 * j - 1]) < 0; j--) {
+                swap(spo, j, j - 1);
+            }
+        }
+    }
+
+    /**
+     * Compare a triple to the given identifiers.
+     * @param spo the triples.
+     * @param i the position of the triple in spo.
+     * @param s the identifier of the subject to compare to.
+     * @param p the identifier of the predicate to compare to.
+     * @param o the identifier of the object to compare to.
+     * @return a negative number, zero or a positive number if the triple is
+     * before, equal or after the identifiers.
+     */
+    private static int compare(final int[] spo, final int i, final int s,
+            final int p, final int o) {
+        if (spo[i] != s) {
+            return spo[i] < s ? -1 : 1;
+        }
+        if (spo[i + 1] != p) {
+            return spo[i + 1] < p ? -1 : 1;
+        }
+        if (spo[i + 2] != o) {
+            return spo[i + 2] < o ? -1 : 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Swap two triples.
+     * @param spo the triples.
+     * @param a the index of the first triple.
+     * @param b the index of the second triple.
+     */
+    private static void swap(final int[] spo, final int a, final int b) {
+        for (int k = 0; k < 3; k++) {
+            final int tmp = spo[3 * a + k];
+            spo[3 * a + k] = spo[3 * b + k];
+            spo[3 * b + k] = tmp;
+        }
+    }
+}
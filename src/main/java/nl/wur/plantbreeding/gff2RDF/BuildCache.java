@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Statement;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjena.atlas.lib.Sink;
+import org.openjena.riot.RiotReader;
+
+/**
+ * This class keeps, for each source of a model, the triples it generated
+ * the last time it was parsed together with the fingerprint (path, size and
+ * modification date) of its input files.
+ *
+ * When the input files of a source did not change, its triples are read back
+ * from the cache instead of parsing the source again. The triples are stored
+ * in gzip compressed N-Triples in the folder of the cache, as
+ * "name.nt.gz", and the fingerprint as "name.inputs".
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class BuildCache {
+
+    /** Folder in which the cache is stored. */
+    private final File folder;
+
+    /**
+     * Constructor.
+     * @param tmpfolder the folder in which the cache is stored, it is created
+     * if needed.
+     */
+    public BuildCache(final String tmpfolder) {
+        this.folder = new File(tmpfolder);
+    }
+
+    /**
+     * Return whether the triples of a source are in the cache and were
+     * generated from the current version of its input files.
+     * The cached triples themselves are only checked when they are loaded.
+     * @param name the name of the source.
+     * @param inputs the paths to the input files of the source.
+     * @return true if the cached triples can be used.
+     * @throws IOException When something goes wrong while reading the cache.
+     */
+    public final boolean isUpToDate(final String name, final String[] inputs)
+            throws IOException {
+        final File fingerprint = this.getFile(name, ".inputs");
+        if (inputs.length == 0 || !fingerprint.exists()
+                || !this.getFile(name, ".nt.gz").exists()) {
+            return false;
+        }
+        final StringBuilder cached = new StringBuilder();
+        final LineReader in = new LineReader(fingerprint.getPath());
+        try {
+            while (in.next()) {
+                cached.append(in).append('\n');
+            }
+        } finally {
+            in.close();
+        }
+        return cached.toString().equals(getFingerprint(inputs));
+    }
+
+    /**
+     * Remove the triples of a source from the cache, it is then parsed again
+     * by the next run.
+     * @param name the name of the source.
+     * @throws IOException When the files of the cache cannot be deleted.
+     */
+    public final void invalidate(final String name) throws IOException {
+        for (String extension : new String[]{".inputs", ".nt.gz"}) {
+            final File file = this.getFile(name, extension);
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Cannot delete " + file);
+            }
+        }
+    }
+
+    /**
+     * Add the cached triples of a source to a model.
+     * @param name the name of the source.
+     * @param model the Jena Model to which the triples are added.
+     * @return the Jena Model with the triples of the source.
+     * @throws IOException When something goes wrong while reading the cache.
+     */
+    public final Model load(final String name, final Model model)
+            throws IOException {
+        final File file = this.getFile(name, ".nt.gz");
+        System.out.println("Reading " + name + " from the cache: " + file);
+        final InputStream in = new GZIPInputStream(new FileInputStream(file),
+                1 << 16);
+        final TripleSink sink = new TripleSink(model.getGraph());
+        try {
+            RiotReader.createParserNTriples(in, sink).parse();
+        } finally {
+            sink.close();
+            in.close();
+        }
+        return model;
+    }
+
+    /**
+     * Start recording the triples added to a model by a source.
+     * The recording must be ended by Recorder.commit once the source is
+     * parsed, or by Recorder.abort if it failed.
+     * @param name the name of the source.
+     * @param inputs the paths to the input files of the source.
+     * @param model the Jena Model to which the source adds its triples.
+     * @return the Recorder of the triples.
+     * @throws IOException When something goes wrong while opening the cache.
+     */
+    public final Recorder record(final String name, final String[] inputs,
+            final Model model) throws IOException {
+        if (!this.folder.exists() && !this.folder.mkdirs()) {
+            throw new IOException("Cannot create the folder " + this.folder);
+        }
+        // The previous triples are no longer valid
+        final File fingerprint = this.getFile(name, ".inputs");
+        if (fingerprint.exists() && !fingerprint.delete()) {
+            throw new IOException("Cannot delete " + fingerprint);
+        }
+        return new Recorder(name, inputs, model);
+    }
+
+    /**
+     * Return the file of the cache for a source.
+     * @param name the name of the source.
+     * @param extension the extension of the file.
+     * @return the File.
+     */
+    private File getFile(final String name, final String extension) {
+        return new File(this.folder, name.replaceAll("[^A-Za-z0-9._-]", "_")
+                + extension);
+    }
+
+    /**
+     * Return the fingerprint of the current version of input files: their
+     * path (or the path of their compressed copy), size and modification
+     * date, one file per line.
+     * @param inputs the paths to the input files.
+     * @return the fingerprint.
+     */
+    static String getFingerprint(final String[] inputs) {
+        final StringBuilder fingerprint = new StringBuilder();
+        for (String input : inputs) {
+            final File file = new File(InputSource.resolve(input));
+            fingerprint.append(file.getPath()).append('\t');
+            if (file.exists()) {
+                fingerprint.append(file.length()).append('\t')
+                        .append(file.lastModified());
+            } else {
+                fingerprint.append("missing");
+            }
+            fingerprint.append('\n');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * This class adds the triples read from the cache to a graph, by batches.
+     */
+    private static final class TripleSink implements Sink<Triple> {
+
+        /** Number of triples added to the graph at once. */
+        private static final int BATCH_SIZE = 1000;
+        /** Graph to which the triples are added. */
+        private final Graph graph;
+        /** Triples read and not yet added to the graph. */
+        private List<Triple> pending = new ArrayList<Triple>(BATCH_SIZE);
+
+        /**
+         * Constructor.
+         * @param tmpgraph the graph to which the triples are added.
+         */
+        private TripleSink(final Graph tmpgraph) {
+            this.graph = tmpgraph;
+        }
+
+        @Override
+        public void send(final Triple t) {
+            this.pending.add(t);
+            if (this.pending.size() == BATCH_SIZE) {
+                this.flush();
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (!this.pending.isEmpty()) {
+                this.graph.getBulkUpdateHandler().add(this.pending);
+                this.pending = new ArrayList<Triple>(BATCH_SIZE);
+            }
+        }
+
+        @Override
+        public void close() {
+            this.flush();
+        }
+    }
+
+    /**
+     * This class writes into the cache the triples added to a model while a
+     * source is parsed.
+     */
+    public final class Recorder extends StatementListener {
+
+        /** Name of the source. */
+        private final String name;
+        /** Fingerprint of the input files when the parsing started. */
+        private final String fingerprint;
+        /** Model to which the source adds its triples. */
+        private final Model model;
+        /** File in which the triples are written until they are complete. */
+        private final File part;
+        /** Graph writing the triples in N-Triples. */
+        private final StreamingGraph graph;
+
+        /**
+         * Constructor, starts listening to the model.
+         * @param tmpname the name of the source.
+         * @param inputs the paths to the input files of the source.
+         * @param tmpmodel the Jena Model to which the source adds its
+         * triples.
+         * @throws IOException When the file of the cache cannot be opened.
+         */
+        private Recorder(final String tmpname, final String[] inputs,
+                final Model tmpmodel) throws IOException {
+            this.name = tmpname;
+            this.fingerprint = getFingerprint(inputs);
+            this.model = tmpmodel;
+            this.part = getFile(tmpname, ".nt.gz.part");
+            this.graph = new StreamingGraph(new BufferedWriter(
+                    new OutputStreamWriter(new GZIPOutputStream(
+                    new FileOutputStream(this.part), 1 << 16), "UTF-8"),
+                    1 << 16));
+            this.model.register(this);
+        }
+
+        /**
+         * Write a statement added to the model into the cache.
+         * @param s the Statement added.
+         */
+        @Override
+        public void addedStatement(final Statement s) {
+            this.graph.add(s.asTriple());
+        }
+
+        /**
+         * Stop listening to the model and store the triples recorded with the
+         * fingerprint of the input files, once the source is parsed
+         * successfully (even if it added no triple).
+         * @throws IOException When something goes wrong while writing the
+         * cache.
+         */
+        public void commit() throws IOException {
+            this.model.unregister(this);
+            this.graph.close();
+            final File file = getFile(this.name, ".nt.gz");
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Cannot replace " + file);
+            }
+            if (!this.part.renameTo(file)) {
+                throw new IOException("Cannot rename " + this.part + " to "
+                        + file);
+            }
+            final Writer out = new OutputStreamWriter(new FileOutputStream(
+                    getFile(this.name, ".inputs")), "UTF-8");
+            try {
+                out.write(this.fingerprint);
+            } finally {
+                out.close();
+            }
+        }
+
+        /**
+         * Stop listening to the model and discard the triples recorded.
+         */
+        public void abort() {
+            this.model.unregister(this);
+            try {
+                this.graph.close();
+            } finally {
+                this.part.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2013, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class parses a text file (such as a GFF file) in parallel.
+ *
+ * The file is split into byte ranges aligned on the end of the lines, each
+ * range is parsed line by line on a pool of threads and the records found in
+ * each range are then handed, in the order of the ranges, to a
+ * RecordHandler. The records are thus handled in the same order as if the
+ * file had been read line by line. The number of ranges parsed at the same
+ * time is bounded, so that the memory used does not depend on the size of
+ * the file.
+ *
+ * The pool of threads is shared by all the parsers, the sources parsed at
+ * the same time (see SourceScheduler) thus do not multiply the threads.
+ *
+ * @param <T> the type of record extracted from the lines of the file.
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class ChunkedFileParser<T> {
+
+    /**
+     * Interface of the objects converting one line of the file into a record.
+     * As the lines are parsed concurrently, implementations should not keep
+     * any state between two lines.
+     * @param <T> the type of record extracted from the lines.
+     */
+    public interface LineParser<T> {
+
+        /**
+         * Parse one line of the file.
+         * @param line a line of the file without its line terminator, only
+         * valid until this method returns.
+         * @param content a FieldCursor on tabulations, owned by the calling
+         * thread, that the method can reset on the line.
+         * @param attributes a GffAttributes, owned by the calling thread,
+         * that the method can reset on the attributes column of the line.
+         * @return the record found on the line or null if there is none.
+         */
+        T parseLine(CharSequence line, FieldCursor content,
+                GffAttributes attributes);
+    }
+
+    /**
+     * Interface of the objects receiving the records of the file, in the
+     * order of the file and on the thread which called parse.
+     * @param <T> the type of record extracted from the lines.
+     */
+    public interface RecordHandler<T> {
+
+        /**
+         * Handle one record of the file.
+         * @param record the record found.
+         */
+        void addRecord(T record);
+    }
+
+    /** Size of a range of the file parsed by one task (4 MB). */
+    private static final long CHUNK_SIZE = 4L * 1024 * 1024;
+    /** Threads parsing the ranges of all the files. */
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, "Line parser");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    /** Object converting the lines into records. */
+    private final LineParser<T> parser;
+    /** Number of ranges of the file parsed at the same time. */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** Number of lines read during the last parsing. */
+    private final AtomicInteger linecount = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * @param tmpparser the LineParser converting each line into a record.
+     */
+    public ChunkedFileParser(final LineParser<T> tmpparser) {
+        this.parser = tmpparser;
+    }
+
+    /**
+     * Set the number of ranges of the file parsed at the same time.
+     * @param tmpthreads the number of ranges, at least 1.
+     */
+    public final void setThreads(final int tmpthreads) {
+        this.threads = Math.max(1, tmpthreads);
+    }
+
+    /**
+     * Return the number of lines read during the last parsing.
+     * @return the number of lines read.
+     */
+    public final int getLineCount() {
+        return this.linecount.get();
+    }
+
+    /**
+     * Parse the given file and hand the records it contains to a
+     * RecordHandler in the order in which they are found in the file.
+     * A compressed file (see InputSource) is parsed sequentially.
+     * @param inputfilename the path to the file to parse.
+     * @param handler the RecordHandler receiving the records.
+     * @return the number of records found.
+     * @throws IOException When something goes wrong with the file.
+     */
+    public final int parse(final String inputfilename,
+            final RecordHandler<T> handler) throws IOException {
+        this.linecount.set(0);
+        if (InputSource.isCompressed(inputfilename)) {
+            // A compressed file cannot be split, it is read sequentially
+            final LineReader br = new LineReader(inputfilename);
+            try {
+                return this.parseLines(br, handler);
+            } finally {
+                br.close();
+            }
+        }
+        final String filename = InputSource.resolve(inputfilename);
+        final long[] bounds = this.split(filename);
+        final Deque<Future<List<T>>> pending =
+                new ArrayDeque<Future<List<T>>>();
+        int cnt = 0;
+        try {
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                pending.addLast(POOL.submit(new RangeParser(filename,
+                        bounds[i], bounds[i + 1])));
+                while (pending.size() > 2 * this.threads) {
+                    cnt = cnt + this.add(pending.removeFirst(), handler);
+                }
+            }
+            while (!pending.isEmpty()) {
+                cnt = cnt + this.add(pending.removeFirst(), handler);
+            }
+        } finally {
+            // The pool is shared, only the ranges of this file are stopped
+            for (Future<List<T>> result : pending) {
+                result.cancel(true);
+            }
+        }
+        return cnt;
+    }
+
+    /**
+     * Wait for the records of a range and hand them to the RecordHandler.
+     * @param result the Future of the records of the range.
+     * @param handler the RecordHandler receiving the records.
+     * @return the number of records of the range.
+     * @throws IOException When something went wrong while parsing the range.
+     */
+    private int add(final Future<List<T>> result,
+            final RecordHandler<T> handler) throws IOException {
+        final List<T> records;
+        try {
+            records = result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing");
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        for (T record : records) {
+            handler.addRecord(record);
+        }
+        return records.size();
+    }
+
+    /**
+     * Split the file into ranges starting at the beginning of a line.
+     * @param inputfilename the path to the file to split.
+     * @return an array of the offsets of the limits between the ranges,
+     * starting with 0 and finishing with the size of the file.
+     * @throws IOException When something goes wrong with the file.
+     */
+    private long[] split(final String inputfilename) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(inputfilename, "r");
+        try {
+            final long size = raf.length();
+            final int nchunks = (int) Math.max(1, size / CHUNK_SIZE);
+            long[] bounds = new long[nchunks + 1];
+            bounds[nchunks] = size;
+            byte[] buffer = new byte[8192];
+            for (int i = 1; i < nchunks; i++) {
+                long pos = Math.max(size / nchunks * i, bounds[i - 1]);
+                bounds[i] = this.nextLineStart(raf, pos, buffer);
+            }
+            return bounds;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Return the offset of the first line starting at or after the given
+     * position.
+     * @param raf the file to look into.
+     * @param pos the position to start looking from.
+     * @param buffer a buffer to use for reading.
+     * @return the offset of the first character after the next end of line,
+     * or the size of the file if there is none.
+     * @throws IOException When something goes wrong with the file.
+     */
+    private long nextLineStart(final RandomAccessFile raf, final long pos,
+            final byte[] buffer) throws IOException {
+        if (pos == 0) {
+            return 0;
+        }
+        // Start on the previous byte, in case pos is already a line start
+        long offset = pos - 1;
+        raf.seek(offset);
+        int read;
+        while ((read = raf.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset = offset + read;
+        }
+        return raf.length();
+    }
+
+    /**
+     * Parse all the lines given by a LineReader.
+     * @param br the LineReader to read.
+     * @param handler the RecordHandler receiving the records found.
+     * @return the number of records found.
+     * @throws IOException When something goes wrong while reading.
+     */
+    private int parseLines(final LineReader br,
+            final RecordHandler<T> handler) throws IOException {
+        final FieldCursor content = new FieldCursor('\t');
+        final GffAttributes attributes = new GffAttributes();
+        int cnt = 0;
+        int found = 0;
+        while (br.next()) {
+            T record = this.parser.parseLine(br, content, attributes);
+            if (record != null) {
+                handler.addRecord(record);
+                found = found + 1;
+            }
+            cnt = cnt + 1;
+        }
+        this.linecount.addAndGet(cnt);
+        return found;
+    }
+
+    /**
+     * Task parsing one range of the file line by line.
+     */
+    private class RangeParser implements Callable<List<T>> {
+
+        /** Path to the file to parse. */
+        private final String inputfilename;
+        /** Offset of the beginning of the range. */
+        private final long start;
+        /** Offset of the end of the range. */
+        private final long end;
+
+        /**
+         * Constructor.
+         * @param tmpfilename the path to the file to parse.
+         * @param tmpstart the offset of the beginning of the range.
+         * @param tmpend the offset of the end of the range.
+         */
+        RangeParser(final String tmpfilename, final long tmpstart,
+                final long tmpend) {
+            this.inputfilename = tmpfilename;
+            this.start = tmpstart;
+            this.end = tmpend;
+        }
+
+        @Override
+        public List<T> call() throws IOException {
+            final List<T> records = new ArrayList<T>();
+            if (this.start >= this.end) {
+                return records;
+            }
+            final FileInputStream fstream =
+                    new FileInputStream(this.inputfilename);
+            try {
+                fstream.getChannel().position(this.start);
+                parseLines(new LineReader(new InputStreamReader(
+                        new RangeInputStream(fstream, this.end - this.start))),
+                        new RecordHandler<T>() {
+                    @Override
+                    public void addRecord(final T record) {
+                        records.add(record);
+                    }
+                });
+            } finally {
+                fstream.close();
+            }
+            return records;
+        }
+    }
+
+    /**
+     * InputStream reading at most a given number of bytes of another stream.
+     */
+    private static class RangeInputStream extends FilterInputStream {
+
+        /** Number of bytes left to read. */
+        private long remaining;
+
+        /**
+         * Constructor.
+         * @param in the InputStream to read from.
+         * @param length the number of bytes to read.
+         */
+        RangeInputStream(final InputStream in, final long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            int c = super.read();
+            if (c != -1) {
+                this.remaining = this.remaining - 1;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+                throws IOException {
+            if (this.remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(b, off, (int) Math.min(len, this.remaining));
+            if (n > 0) {
+                this.remaining = this.remaining - n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            long skipped = super.skip(Math.min(n, this.remaining));
+            this.remaining = this.remaining - skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), this.remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
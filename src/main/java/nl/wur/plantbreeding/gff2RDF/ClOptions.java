@@ -51,6 +51,12 @@ public class ClOptions {
     @Option(name = "--ppi",
     usage = "Download protein-protein information (from EBI) and convert it to RDF")
     private boolean ppi;
+    @Option(name = "--ppi-evidence",
+    usage = "Add to each protein-protein interaction the number of times it is found in the files of EBI.")
+    private boolean ppievidence;
+    @Option(name = "--ppi-filter",
+    usage = "Only keep the protein-protein interactions involving a protein of the given file: a model generated before (for example Tomato_files/genemodel.rdf) or a list of UniProt accessions, one per line.")
+    private String ppifilter;
     @Option(name = "-h", aliases = {"--help"},
     usage = "Print the usage and exit")
     private boolean help;
@@ -63,9 +69,33 @@ public class ClOptions {
     @Option(name = "--force-unzip",
     usage = "Force the extraction of the files even if there are already found on their folder.")
     private boolean forceunzip;
+    @Option(name = "--keep-compressed",
+    usage = "Do not extract the compressed files, read them directly instead.")
+    private boolean keepcompressed;
     @Option(name = "--download-only",
     usage = "Performs only the download of the files")
     private boolean dlonly;
+    @Option(name = "--stream",
+    usage = "Write the triples in N-Triples to the output file as they are generated instead of keeping the whole model in memory.")
+    private boolean stream;
+    @Option(name = "--batch-size",
+    usage = "Number of genes, markers or interactions whose triples are added to the model at once (default: 1000).")
+    private int batchsize = ObjectToModel.DEFAULT_BATCH_SIZE;
+    @Option(name = "--format",
+    usage = "Format of the models written at the end: rdfxml (default), ntriples, nquads (one named graph per source file), turtle or binary (dictionary encoded, can be queried without being loaded). Only ntriples or nquads with --stream or --store, only nquads with --named-graphs.")
+    private String format;
+    @Option(name = "--gzip",
+    usage = "Compress the output files in gzip, on several threads (not the binary ones).")
+    private boolean gzip;
+    @Option(name = "--incremental",
+    usage = "Keep the triples of each source file in a cache and only parse again the files which changed since the last run.")
+    private boolean incremental;
+    @Option(name = "--named-graphs",
+    usage = "Add the information of each source file to its own named graph and write the models in N-Quads.")
+    private boolean namedgraphs;
+    @Option(name = "--store",
+    usage = "Build the models in the given store instead of in memory and export them in N-Triples, for example tdb:<folder> for a Jena TDB store.")
+    private String store;
 
     @Option(name = "--folder",
     usage = "Specifies in which folder download/read the files of the annotation (by default it goes create a folder per specie).")
@@ -109,6 +139,62 @@ public class ClOptions {
         return this.dlonly;
     }
 
+    /**
+     * Returns whether the stream argument was set.
+     * @return the boolean stream.
+     */
+    public boolean isStream() {
+        return this.stream;
+    }
+
+    /**
+     * Returns the number of records whose triples are added at once.
+     * @return the int batchsize.
+     */
+    public int getBatchSize() {
+        return this.batchsize;
+    }
+
+    /**
+     * Returns the format in which the model is written.
+     * @return the String format, null if it was not set.
+     */
+    public String getFormat() {
+        return this.format;
+    }
+
+    /**
+     * Returns whether the gzip argument was set.
+     * @return the boolean gzip.
+     */
+    public boolean isGzip() {
+        return this.gzip;
+    }
+
+    /**
+     * Returns whether the incremental argument was set.
+     * @return the boolean incremental.
+     */
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    /**
+     * Returns whether the named graphs argument was set.
+     * @return the boolean namedgraphs.
+     */
+    public boolean isNamedGraphs() {
+        return this.namedgraphs;
+    }
+
+    /**
+     * Returns the store in which the models are built.
+     * @return the String store, null to build them in memory.
+     */
+    public String getStore() {
+        return this.store;
+    }
+
     /**
      * Returns whether the force extract only argument was set.
      * @return the boolean forceunzip.
@@ -117,6 +203,14 @@ public class ClOptions {
         return this.forceunzip;
     }
 
+    /**
+     * Returns whether the keep compressed argument was set.
+     * @return the boolean keepcompressed.
+     */
+    public boolean isKeepCompressed() {
+        return this.keepcompressed;
+    }
+
     /**
      * Returns whether the forcedl argument was set.
      * @return the boolean forcedl.
@@ -165,6 +259,23 @@ public class ClOptions {
         return this.ppi;
     }
 
+    /**
+     * Returns whether the protein-protein interaction evidence argument was
+     * set.
+     * @return the boolean ppievidence.
+     */
+    public boolean isPpiEvidence() {
+        return this.ppievidence;
+    }
+
+    /**
+     * Returns the file of the proteins whose interactions are kept.
+     * @return a String of the path to the file, null to keep them all.
+     */
+    public String getPpiFilter() {
+        return this.ppifilter;
+    }
+
     /**
      * Returns the map set in the command line.
      * @return a String of the path to the map file.
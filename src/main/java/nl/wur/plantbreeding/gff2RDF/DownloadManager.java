@@ -0,0 +1,567 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class downloads the files of an annotation.
+ *
+ * The files are downloaded at the same time, each into a ".part" file which
+ * is renamed once complete. When a ".part" file is left by an interrupted
+ * download, an HTTP server is asked (with a Range request) only for the
+ * missing bytes, if the file did not change since: the ETag or Last-Modified
+ * of the interrupted download is kept in a ".part.validator" file and sent
+ * as If-Range. Without it, and with other protocols (ftp), the download
+ * restarts from the beginning.
+ *
+ * Each download is recorded in the manifest of its folder (see
+ * DownloadManifest). A file already present is then only downloaded again
+ * if an HTTP server reports (with a conditional request) that it changed, if
+ * an FTP server gives (with the SIZE and MDTM commands) another size or
+ * date than the ones recorded, or if the local copy no longer has the size
+ * and checksum recorded. When the server cannot be reached, the local copy
+ * is used.
+ *
+ * The URLs are opened with java.net.URL, so any server (including a local
+ * one) can be used.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class DownloadManager {
+
+    /** Logger used for outputing log information. */
+    private static final Logger LOG = Logger.getLogger(
+            DownloadManager.class.getName());
+
+    /** Default number of files downloaded at the same time. */
+    public static final int DEFAULT_THREADS = 4;
+    /** Number of bytes transfered to the file at once (16 MB). */
+    private static final long TRANSFER_SIZE = 1L << 24;
+    /** Time to wait for a connection or for data, in milliseconds. */
+    private static final int TIMEOUT = 5 * 60 * 1000;
+    /** Suffix of the files being downloaded. */
+    public static final String PART_SUFFIX = ".part";
+    /** Suffix of the file keeping the version of a ".part" file. */
+    public static final String VALIDATOR_SUFFIX = PART_SUFFIX + ".validator";
+
+    /** The files to download, per URL. */
+    private final Map<String, String> files =
+            new LinkedHashMap<String, String>();
+    /** Whether to download the files already present locally. */
+    private final boolean force;
+    /** Number of files downloaded at the same time. */
+    private int threads = DEFAULT_THREADS;
+    /** The manifests of the folders in which files are downloaded. */
+    private final Map<File, DownloadManifest> manifests =
+            new HashMap<File, DownloadManifest>();
+
+    /**
+     * Constructor.
+     * @param tmpforce boolean whether to download the files even if they are
+     * already present locally.
+     */
+    public DownloadManager(final boolean tmpforce) {
+        this.force = tmpforce;
+    }
+
+    /**
+     * Set the number of files downloaded at the same time.
+     * @param tmpthreads the number of threads, at least 1.
+     */
+    public final void setThreads(final int tmpthreads) {
+        this.threads = Math.max(1, tmpthreads);
+    }
+
+    /**
+     * Add a file to download.
+     * @param urlstring String of the url of the file.
+     * @param outputfile String of the name of the file that will be stored
+     * locally.
+     */
+    public final void add(final String urlstring, final String outputfile) {
+        this.files.put(urlstring, outputfile);
+    }
+
+    /**
+     * Download all the files added.
+     * All the downloads are attempted, even if some of them fail.
+     * @throws IOException the error of the first download which failed.
+     */
+    public final void downloadAll() throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(this.threads, this.files.size())));
+        final List<Future<Void>> results = new ArrayList<Future<Void>>();
+        try {
+            for (final Map.Entry<String, String> entry
+                    : this.files.entrySet()) {
+                results.add(pool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws IOException {
+                        download(entry.getKey(), entry.getValue());
+                        return null;
+                    }
+                }));
+            }
+
+            IOException error = null;
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    if (!(cause instanceof IOException)) {
+                        throw new IllegalStateException(cause);
+                    }
+                    LOG.log(Level.FINE, "Download failed: {0}",
+                            cause.getMessage());
+                    if (error == null) {
+                        error = (IOException) cause;
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Download one file.
+     * @param urlstring String of the url of the file.
+     * @param outputfile String of the name of the file that will be stored
+     * locally.
+     * @throws IOException if something goes wrong while downloading or
+     * writing the file.
+     */
+    public final void download(final String urlstring,
+            final String outputfile) throws IOException {
+        System.out.println("Trying to download file: '" + outputfile
+                + "' from :\n " + urlstring);
+        final File f = new File(outputfile);
+        if (!f.exists() && !this.force
+                && !InputSource.resolve(outputfile).equals(outputfile)) {
+            System.out.println("  -- compressed copy found, no need");
+            LOG.log(Level.FINE, "A compressed copy of {0} exists, no need to download it",
+                    outputfile);
+            return;
+        }
+        final DownloadManifest manifest = this.getManifest(f);
+        URLConnection uCon = null;
+        String[] ftpstat = null;
+        if (f.exists() && !this.force) {
+            if (!manifest.matches(f, urlstring)) {
+                System.out.println("  -- local copy differs from the"
+                        + " manifest, downloading it again");
+            } else if (urlstring.startsWith("ftp")) {
+                try {
+                    ftpstat = this.ftpStat(urlstring);
+                } catch (IOException ex) {
+                    System.out.println("  -- cannot be checked, using the"
+                            + " local copy");
+                    LOG.log(Level.WARNING, "Cannot check {0}: {1}",
+                            new Object[]{urlstring, ex.getMessage()});
+                    return;
+                }
+                final String mdtm = manifest.get(f.getName(),
+                        DownloadManifest.LAST_MODIFIED);
+                if ((ftpstat[0] == null
+                        || ftpstat[0].equals(Long.toString(f.length())))
+                        && (ftpstat[1] == null || mdtm == null
+                        || ftpstat[1].equals(mdtm))) {
+                    System.out.println("  -- not modified");
+                    return;
+                }
+            } else if (!urlstring.startsWith("http")) {
+                System.out.println("  -- no need");
+                LOG.log(Level.FINE, "The file {0} already exists, no need to re-download it",
+                        outputfile);
+                return;
+            } else {
+                try {
+                    uCon = this.openIfModified(urlstring, f, manifest);
+                    final int code =
+                            ((HttpURLConnection) uCon).getResponseCode();
+                    if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        System.out.println("  -- not modified");
+                        ((HttpURLConnection) uCon).disconnect();
+                        return;
+                    } else if (code != HttpURLConnection.HTTP_OK) {
+                        // Only a complete answer replaces the local copy
+                        System.out.println("  -- cannot be checked, using"
+                                + " the local copy");
+                        LOG.log(Level.WARNING, "Cannot check {0}: HTTP {1}",
+                                new Object[]{urlstring, code});
+                        ((HttpURLConnection) uCon).disconnect();
+                        return;
+                    }
+                } catch (IOException ex) {
+                    System.out.println("  -- cannot be checked, using the"
+                            + " local copy");
+                    LOG.log(Level.WARNING, "Cannot check {0}: {1}",
+                            new Object[]{urlstring, ex.getMessage()});
+                    return;
+                }
+            }
+        }
+
+        if (ftpstat == null && urlstring.startsWith("ftp")) {
+            // The date of the file is recorded to check it on the next runs
+            try {
+                ftpstat = this.ftpStat(urlstring);
+            } catch (IOException ex) {
+                LOG.log(Level.FINE, "Cannot check {0}: {1}",
+                        new Object[]{urlstring, ex.getMessage()});
+            }
+        }
+        final File part = new File(outputfile + PART_SUFFIX);
+        final File validator = new File(outputfile + VALIDATOR_SUFFIX);
+        long offset = 0;
+        if (uCon == null) {
+            // Without the version of the bytes already there, start again
+            final String ifrange = part.exists()
+                    ? this.readValidator(validator) : null;
+            offset = ifrange != null ? part.length() : 0;
+            uCon = this.open(urlstring, offset, ifrange);
+            if (offset > 0 && !this.isPartial(uCon)) {
+                // The file changed, the server sends all of it again
+                LOG.log(Level.FINE, "Cannot resume {0}, downloading it again",
+                        outputfile);
+                offset = 0;
+                if (this.isRangeNotSatisfiable(uCon)) {
+                    uCon = this.open(urlstring, 0, null);
+                }
+            } else if (offset > 0) {
+                System.out.println("  Resuming " + outputfile + " at byte "
+                        + offset);
+            }
+        }
+        if (offset == 0) {
+            this.writeValidator(validator, uCon);
+        }
+
+        final InputStream is = uCon.getInputStream();
+        final FileOutputStream fos = new FileOutputStream(part, offset > 0);
+        try {
+            final ReadableByteChannel rbc = Channels.newChannel(is);
+            final FileChannel fc = fos.getChannel();
+            long position = offset;
+            long read;
+            while ((read = fc.transferFrom(rbc, position, TRANSFER_SIZE))
+                    > 0) {
+                position += read;
+            }
+            fc.truncate(position);
+        } finally {
+            fos.close();
+            is.close();
+        }
+
+        if (f.exists() && !f.delete()) {
+            throw new IOException("Cannot replace " + outputfile);
+        }
+        if (!part.renameTo(f)) {
+            throw new IOException("Cannot rename " + part + " to "
+                    + outputfile);
+        }
+        validator.delete();
+        String lastmodified = uCon.getHeaderField("Last-Modified");
+        if (ftpstat != null) {
+            lastmodified = ftpstat[1];
+        }
+        manifest.record(f, urlstring, uCon.getHeaderField("ETag"),
+                lastmodified, DownloadManifest.sha256(f));
+    }
+
+    /**
+     * Return the manifest of the folder in which a file is downloaded.
+     * @param f the file downloaded.
+     * @return the DownloadManifest of its folder.
+     * @throws IOException if the manifest cannot be read.
+     */
+    private synchronized DownloadManifest getManifest(final File f)
+            throws IOException {
+        final File folder = f.getAbsoluteFile().getParentFile();
+        DownloadManifest manifest = this.manifests.get(folder);
+        if (manifest == null) {
+            manifest = new DownloadManifest(folder);
+            this.manifests.put(folder, manifest);
+        }
+        return manifest;
+    }
+
+    /**
+     * Open a connection asking an HTTP server for a file only if it changed
+     * since it was downloaded.
+     * The ETag and Last-Modified recorded in the manifest are used, or the
+     * date of the local file if the manifest does not know it.
+     * @param urlstring String of the url of the file.
+     * @param f the local copy of the file.
+     * @param manifest the DownloadManifest of the folder of the file.
+     * @return the URLConnection opened.
+     * @throws IOException if something goes wrong while connecting.
+     */
+    private URLConnection openIfModified(final String urlstring,
+            final File f, final DownloadManifest manifest)
+            throws IOException {
+        URL url = new URL(urlstring);
+        URLConnection uCon = url.openConnection();
+        uCon.setConnectTimeout(TIMEOUT);
+        uCon.setReadTimeout(TIMEOUT);
+        final String etag = manifest.get(f.getName(), DownloadManifest.ETAG);
+        final String lastmodified = manifest.get(f.getName(),
+                DownloadManifest.LAST_MODIFIED);
+        if (etag != null) {
+            uCon.setRequestProperty("If-None-Match", etag);
+        }
+        if (lastmodified != null) {
+            uCon.setRequestProperty("If-Modified-Since", lastmodified);
+        } else if (etag == null) {
+            uCon.setIfModifiedSince(f.lastModified());
+        }
+        uCon.connect();
+        return uCon;
+    }
+
+    /**
+     * Ask an FTP server for the size and the modification date of a file,
+     * with the SIZE and MDTM commands.
+     * @param urlstring String of the ftp url of the file.
+     * @return the size and the MDTM date of the file, null for the one the
+     * server does not give.
+     * @throws IOException if the server cannot be reached or gives neither.
+     */
+    private String[] ftpStat(final String urlstring) throws IOException {
+        final URL url = new URL(urlstring);
+        String user = "anonymous";
+        String password = "anonymous@";
+        if (url.getUserInfo() != null) {
+            final String[] info = url.getUserInfo().split(":", 2);
+            user = info[0];
+            password = info.length > 1 ? info[1] : "";
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(url.getHost(),
+                    url.getPort() == -1 ? url.getDefaultPort()
+                    : url.getPort()), TIMEOUT);
+            socket.setSoTimeout(TIMEOUT);
+            final BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            final Writer out = new OutputStreamWriter(
+                    socket.getOutputStream(), "UTF-8");
+            ftpCommand(in, out, null);
+            String reply = ftpCommand(in, out, "USER " + user);
+            if (reply.startsWith("331")) {
+                reply = ftpCommand(in, out, "PASS " + password);
+            }
+            if (!reply.startsWith("230")) {
+                throw new IOException("Login refused: " + reply);
+            }
+            // The size is only given for binary transfers by some servers
+            ftpCommand(in, out, "TYPE I");
+            final String[] stat = new String[2];
+            final String[] commands = {"SIZE ", "MDTM "};
+            for (int i = 0; i < commands.length; i++) {
+                reply = ftpCommand(in, out, commands[i] + url.getPath());
+                if (reply.startsWith("213 ")) {
+                    stat[i] = reply.substring(4).trim();
+                }
+            }
+            ftpCommand(in, out, "QUIT");
+            if (stat[0] == null && stat[1] == null) {
+                throw new IOException("No size nor date given for "
+                        + url.getPath());
+            }
+            return stat;
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Send a command to an FTP server and return its reply.
+     * @param in the BufferedReader of the replies of the server.
+     * @param out the Writer of the commands to the server.
+     * @param command the command, null to only read a reply.
+     * @return the last line of the reply, starting with its code.
+     * @throws IOException if the connection is lost.
+     */
+    private static String ftpCommand(final BufferedReader in,
+            final Writer out, final String command) throws IOException {
+        if (command != null) {
+            out.write(command + "\r\n");
+            out.flush();
+        }
+        String line = in.readLine();
+        // A reply on several lines ends with its code followed by a space
+        if (line != null && line.length() > 3 && line.charAt(3) == '-') {
+            final String end = line.substring(0, 3) + " ";
+            while (line != null && !line.startsWith(end)) {
+                line = in.readLine();
+            }
+        }
+        if (line == null) {
+            throw new EOFException("Connection closed by the server");
+        }
+        return line;
+    }
+
+    /**
+     * Open a connection to the given url.
+     * @param urlstring String of the url of the file.
+     * @param offset the number of bytes already downloaded, asked to be
+     * skipped to an HTTP server.
+     * @param ifrange the ETag or Last-Modified of the bytes already
+     * downloaded, the server sends the whole file if it changed since.
+     * @return the URLConnection opened.
+     * @throws IOException if something goes wrong while connecting.
+     */
+    private URLConnection open(final String urlstring, final long offset,
+            final String ifrange) throws IOException {
+        URL url = new URL(urlstring);
+        URLConnection uCon = url.openConnection();
+        uCon.setConnectTimeout(TIMEOUT);
+        uCon.setReadTimeout(TIMEOUT);
+        if (offset > 0 && uCon instanceof HttpURLConnection) {
+            uCon.setRequestProperty("Range", "bytes=" + offset + "-");
+            uCon.setRequestProperty("If-Range", ifrange);
+        }
+        uCon.connect();
+        return uCon;
+    }
+
+    /**
+     * Return the version of a ".part" file, as kept by writeValidator.
+     * @param validator the file keeping the version.
+     * @return the String ETag or Last-Modified, null if it is not known.
+     * @throws IOException if the file cannot be read.
+     */
+    private String readValidator(final File validator) throws IOException {
+        if (!validator.exists()) {
+            return null;
+        }
+        final LineReader in = new LineReader(validator.getPath());
+        try {
+            return in.next() && in.length() > 0 ? in.toString() : null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Keep the version of the file a download starts to write, so that it
+     * can only be resumed on the same version.
+     * A weak ETag cannot be used in If-Range, Last-Modified is then used.
+     * @param validator the file keeping the version.
+     * @param uCon the URLConnection opened.
+     * @throws IOException if the file cannot be written.
+     */
+    private void writeValidator(final File validator, final URLConnection uCon)
+            throws IOException {
+        String value = null;
+        if (uCon instanceof HttpURLConnection) {
+            value = uCon.getHeaderField("ETag");
+            if (value == null || value.startsWith("W/")) {
+                value = uCon.getHeaderField("Last-Modified");
+            }
+        }
+        if (value == null) {
+            validator.delete();
+        } else {
+            final Writer out = new OutputStreamWriter(
+                    new FileOutputStream(validator), "UTF-8");
+            try {
+                out.write(value);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Return whether the server only sends the part of the file asked.
+     * @param uCon the URLConnection opened.
+     * @return true if the server answered 206 (Partial Content).
+     * @throws IOException if something goes wrong while reading the answer.
+     */
+    private boolean isPartial(final URLConnection uCon) throws IOException {
+        return uCon instanceof HttpURLConnection
+                && ((HttpURLConnection) uCon).getResponseCode()
+                == HttpURLConnection.HTTP_PARTIAL;
+    }
+
+    /**
+     * Return whether the server refused the range asked, when the ".part"
+     * file is not the beginning of the file (it may have changed since).
+     * @param uCon the URLConnection opened.
+     * @return true if the server answered 416 (Range Not Satisfiable).
+     * @throws IOException if something goes wrong while reading the answer.
+     */
+    private boolean isRangeNotSatisfiable(final URLConnection uCon)
+            throws IOException {
+        return uCon instanceof HttpURLConnection
+                && ((HttpURLConnection) uCon).getResponseCode() == 416;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/**
+ * This class keeps track of the files downloaded in a folder.
+ *
+ * For each file, the manifest (a properties file stored in the folder)
+ * records the URL it comes from, its size, the ETag and Last-Modified headers
+ * sent by the server (the MDTM date for an FTP server) and its SHA-256
+ * checksum. These are used to ask the
+ * server for the file only if it changed, and to detect a local copy which
+ * no longer corresponds to what was downloaded.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class DownloadManifest {
+
+    /** Name of the manifest file in the folder. */
+    public static final String FILENAME = "download.manifest";
+    /** Key of the URL of a file. */
+    public static final String URL = "url";
+    /** Key of the size of a file. */
+    public static final String SIZE = "size";
+    /** Key of the ETag header sent with a file. */
+    public static final String ETAG = "etag";
+    /** Key of the Last-Modified header (or FTP MDTM) sent with a file. */
+    public static final String LAST_MODIFIED = "lastmodified";
+    /** Key of the SHA-256 checksum of a file. */
+    public static final String SHA256 = "sha256";
+
+    /** Hexadecimal digits used to print the checksums. */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The manifest file. */
+    private final File file;
+    /** The information recorded, keys are "filename.key". */
+    private final Properties properties = new Properties();
+
+    /**
+     * Constructor, reads the manifest of the folder if there is one.
+     * @param folder the folder in which the files are downloaded.
+     * @throws IOException if the manifest cannot be read.
+     */
+    public DownloadManifest(final File folder) throws IOException {
+        this.file = new File(folder, FILENAME);
+        if (this.file.exists()) {
+            final InputStream in = new FileInputStream(this.file);
+            try {
+                this.properties.load(in);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Return the information recorded about a file.
+     * @param filename the name of the file in the folder.
+     * @param key the information to return (URL, SIZE, ETAG...).
+     * @return a String of the information or null if it is not recorded.
+     */
+    public final synchronized String get(final String filename,
+            final String key) {
+        return this.properties.getProperty(filename + "." + key);
+    }
+
+    /**
+     * Return whether a local file may be the one downloaded from the given
+     * url: it is not in the manifest or it is recorded with this url, its
+     * current size and its current checksum.
+     * @param f the local file.
+     * @param urlstring String of the url of the file.
+     * @return false if the file should be downloaded again.
+     * @throws IOException if the file cannot be read.
+     */
+    public final boolean matches(final File f, final String urlstring)
+            throws IOException {
+        final String url = this.get(f.getName(), URL);
+        if (url == null) {
+            return true;
+        }
+        if (!url.equals(urlstring) || !Long.toString(f.length()).equals(
+                this.get(f.getName(), SIZE))) {
+            return false;
+        }
+        // The size alone does not show a corrupted copy
+        final String checksum = this.get(f.getName(), SHA256);
+        return checksum == null || checksum.equals(sha256(f));
+    }
+
+    /**
+     * Record a file which has just been downloaded and save the manifest.
+     * @param f the local file.
+     * @param urlstring String of the url of the file.
+     * @param etag the ETag header sent by the server (may be null).
+     * @param lastmodified the Last-Modified header sent by the server (may
+     * be null).
+     * @param sha256 the SHA-256 checksum of the file.
+     * @throws IOException if the manifest cannot be written.
+     */
+    public final synchronized void record(final File f,
+            final String urlstring, final String etag,
+            final String lastmodified, final String sha256)
+            throws IOException {
+        final String name = f.getName();
+        this.set(name, URL, urlstring);
+        this.set(name, SIZE, Long.toString(f.length()));
+        this.set(name, ETAG, etag);
+        this.set(name, LAST_MODIFIED, lastmodified);
+        this.set(name, SHA256, sha256);
+
+        // Write a new file and replace the old one, so that a manifest is
+        // never left half written
+        final File tmp = new File(this.file.getPath() + ".tmp");
+        final OutputStream out = new FileOutputStream(tmp);
+        try {
+            this.properties.store(out, "Files downloaded by gff2rdf");
+        } finally {
+            out.close();
+        }
+        if (this.file.exists() && !this.file.delete()) {
+            throw new IOException("Cannot replace " + this.file);
+        }
+        if (!tmp.renameTo(this.file)) {
+            throw new IOException("Cannot rename " + tmp + " to "
+                    + this.file);
+        }
+    }
+
+    /**
+     * Set or remove an information about a file.
+     * @param filename the name of the file in the folder.
+     * @param key the information to set.
+     * @param value the value of the information, null to remove it.
+     */
+    private void set(final String filename, final String key,
+            final String value) {
+        if (value == null) {
+            this.properties.remove(filename + "." + key);
+        } else {
+            this.properties.setProperty(filename + "." + key, value);
+        }
+    }
+
+    /**
+     * Compute the SHA-256 checksum of a file.
+     * @param f the file to read.
+     * @return a String of the checksum in hexadecimal.
+     * @throws IOException if the file cannot be read.
+     */
+    public static String sha256(final File f) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        final FileInputStream in = new FileInputStream(f);
+        try {
+            final FileChannel fc = in.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            while (fc.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            in.close();
+        }
+        final byte[] hash = digest.digest();
+        final char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
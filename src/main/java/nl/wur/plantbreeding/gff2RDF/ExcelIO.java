@@ -30,26 +30,62 @@
 
 package nl.wur.plantbreeding.gff2RDF;
 
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.apache.poi.hssf.util.CellReference;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * This class handles the reading of excel files.
  *
- * This main function in this class is the function convertToCsv which goal is
- * to convert a given excel file into a csv file.
+ * The sheets are read in streaming, without loading the workbook in memory:
+ * the .xls files (OLE2) with the event API of HSSF and the .xlsx files
+ * (OOXML) with a SAX parser of the XML of their sheets. The rows of the
+ * sheets asked for are handed one by one to a RowHandler, all the sheets
+ * being read in a single pass over the file (see readSheets). The numeric
+ * cells are given as doubles (see SheetRow).
+ *
+ * The function readCsv hands in the same way the rows of a sheet exported
+ * in CSV, and convertToCsv converts a given sheet into a csv file.
  *
  * @author Pierre-Yves Chibon -- py@chibon.fr
  * @author Richard Finkers
@@ -59,6 +95,103 @@ public class ExcelIO {
     /** Logger used for outputing log information. */
     private static final Logger LOG = Logger.getLogger(ExcelIO.class.getName());
 
+    /** First bytes of an OLE2 file (.xls). */
+    private static final byte[] OLE2_MAGIC = {(byte) 0xd0, (byte) 0xcf,
+        (byte) 0x11, (byte) 0xe0, (byte) 0xa1, (byte) 0xb1, (byte) 0x1a,
+        (byte) 0xe1};
+
+    /**
+     * Interface of the consumers of the rows of a sheet.
+     */
+    public interface RowHandler {
+
+        /**
+         * Handle a row of the sheet. The rows without any value are skipped.
+         * @param row the cells of the row, per column index. The formulas
+         * are given by their cached value. The SheetRow is re-used for the
+         * next row.
+         */
+        void handleRow(SheetRow row);
+
+        /**
+         * Called once all the rows of the sheet were handled.
+         */
+        void endSheet();
+    }
+
+    /**
+     * Read the given sheets of an excel file (.xls or .xlsx) in a single
+     * pass and hand their rows to their handler, as they are read.
+     * @param inputfile a String representing the name of the file
+     * @param handlers the RowHandler of each sheet to read, per name of the
+     * sheet. The other sheets are skipped.
+     * @throws IOException if something goes wrong while reading the file
+     * @throws InvalidFormatException if the file is not an excel file
+     */
+    public static void readSheets(final String inputfile,
+            final Map<String, RowHandler> handlers)
+            throws IOException, InvalidFormatException {
+        final InputStream inp = new BufferedInputStream(
+                new FileInputStream(inputfile));
+        try {
+            final byte[] magic = new byte[OLE2_MAGIC.length];
+            inp.mark(magic.length);
+            int read = 0;
+            int n;
+            while (read < magic.length
+                    && (n = inp.read(magic, read, magic.length - read)) > 0) {
+                read = read + n;
+            }
+            inp.reset();
+            if (Arrays.equals(magic, OLE2_MAGIC)) {
+                readHssf(inp, handlers);
+                return;
+            } else if (read < 4 || magic[0] != 'P' || magic[1] != 'K') {
+                throw new InvalidFormatException("Not an excel file: "
+                        + inputfile);
+            }
+        } finally {
+            inp.close();
+        }
+        readXssf(inputfile, handlers);
+    }
+
+    /**
+     * Read a CSV file, a sheet exported in CSV for example, and hand its
+     * rows to the handler, as they are read. The double quotes are removed
+     * from the cells, whose content is given as text.
+     * @param inputfile a String representing the name of the file
+     * @param separator the character separating the cells
+     * @param handler the RowHandler of the rows of the file
+     * @throws IOException if something goes wrong while reading the file
+     */
+    public static void readCsv(final String inputfile, final char separator,
+            final RowHandler handler) throws IOException {
+        final LineReader br = new LineReader(inputfile);
+        final FieldCursor content = new FieldCursor(separator);
+        final SheetRow row = new SheetRow();
+        int cnt = 0;
+        try {
+            while (br.next()) {
+                content.reset(br, true);
+                row.clear(cnt);
+                for (int i = 0; i < content.size(); i++) {
+                    if (content.indexOf(i, "\"") >= 0) {
+                        row.setString(i, content.get(i).replace("\"", ""));
+                    } else {
+                        row.setString(i, content.get(i));
+                    }
+                }
+                handler.handleRow(row);
+                cnt = cnt + 1;
+            }
+        } finally {
+            br.close();
+        }
+        handler.endSheet();
+        LOG.log(Level.FINE, "{0} lines read", cnt);
+    }
+
     /**
      * Function to convert a specified excel file into a CSV (comma separated
      * value) file.
@@ -67,62 +200,349 @@ public class ExcelIO {
      * @param outputfile a String reprensenting the name of the CSV file which
      * is outputed
      * @throws IOException if something goes wrong while reading/writing files
-     * @throws InvalidFormatException if the system doesn't support UTF-8 format
+     * @throws InvalidFormatException if the file is not an excel file
      */
     public static void convertToCsv(String inputfile, String sheetname,
             String outputfile) throws IOException, InvalidFormatException {
-        InputStream inp = null;
-        inp = new FileInputStream(inputfile);
-        Workbook wb;
-        wb = WorkbookFactory.create(inp);
-        wb.setMissingCellPolicy(Row.CREATE_NULL_AS_BLANK);
-        Sheet sheet1 = wb.getSheet(sheetname);
-        ExcelIO.convertToCSV(sheet1, outputfile);
-        inp.close();
+        System.out.println("Converting to CSV sheet: " + sheetname);
+
+        final Writer out = new OutputStreamWriter(
+                new FileOutputStream(outputfile), "UTF-8");
+        final IOException[] error = new IOException[1];
+        try {
+            readSheets(inputfile, Collections.singletonMap(sheetname,
+                    (RowHandler) new RowHandler() {
+                @Override
+                public void handleRow(final SheetRow row) {
+                    final StringBuilder rowout = new StringBuilder();
+                    for (int i = 0; i < row.size(); i++) {
+                        if (i > 0) {
+                            rowout.append(',');
+                        }
+                        rowout.append(row.getString(i));
+                    }
+                    rowout.append('\n');
+                    try {
+                        out.write(rowout.toString());
+                    } catch (IOException ex) {
+                        error[0] = ex;
+                    }
+                }
+
+                @Override
+                public void endSheet() {
+                }
+            }));
+        } finally {
+            out.close();
+        }
+        if (error[0] != null) {
+            throw error[0];
+        }
     }
 
     /**
-     * This is the function which actually does the job of reading an excel
-     * sheet and outputing a CSV file.
-     * @param sheet the Sheet you want to convert.
-     * @param outputfile a String reprensenting the name of the CSV file which
-     * is outputed
-     * @throws IOException if something goes wrong while reading/writing files
+     * Read the sheets of an OLE2 (.xls) file with the event API of HSSF.
+     * @param inp the stream of the file.
+     * @param handlers the RowHandler of each sheet to read, per name.
+     * @throws IOException if something goes wrong while reading the file
      */
-    private static void convertToCSV(Sheet sheet, String outputfile)
-        throws IOException {
-        System.out.println("Converting to CSV sheet: " + sheet.getSheetName());
-
-        FileOutputStream fos = new FileOutputStream(outputfile);
-        OutputStreamWriter out = new OutputStreamWriter(fos, "UTF-8");
-
-        for (Row row : sheet) {
-            String rowout = "";
-            for (Cell cell : row) {
-                CellReference cellRef = new CellReference(row.getRowNum(), cell.getColumnIndex());
-                String cellcontent = "";
-                switch (cell.getCellType()) {
-                    case Cell.CELL_TYPE_STRING:
-                        cellcontent = cell.getRichStringCellValue().getString();
-                        break;
-                    case Cell.CELL_TYPE_NUMERIC:
-                        cellcontent = Double.toString(cell.getNumericCellValue());
-                        break;
-                    case Cell.CELL_TYPE_FORMULA:
-                        cellcontent = cell.getCellFormula();
-                        break;
-                    default:
-                        LOG.log(Level.FINE, "No type found for cell: {0}",
-                                cellRef);
+    private static void readHssf(final InputStream inp,
+            final Map<String, RowHandler> handlers) throws IOException {
+        final POIFSFileSystem fs = new POIFSFileSystem(inp);
+        final HssfListener listener = new HssfListener(handlers);
+        final HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(listener);
+        new HSSFEventFactory().processWorkbookEvents(request, fs);
+    }
+
+    /**
+     * Read the sheets of an OOXML (.xlsx) file, parsing the XML of each
+     * sheet asked for with SAX.
+     * @param inputfile the name of the file.
+     * @param handlers the RowHandler of each sheet to read, per name.
+     * @throws IOException if something goes wrong while reading the file
+     * @throws InvalidFormatException if the file is not an excel file
+     */
+    private static void readXssf(final String inputfile,
+            final Map<String, RowHandler> handlers)
+            throws IOException, InvalidFormatException {
+        final OPCPackage pkg = OPCPackage.open(inputfile, PackageAccess.READ);
+        try {
+            final XSSFReader reader = new XSSFReader(pkg);
+            final ReadOnlySharedStringsTable strings =
+                    new ReadOnlySharedStringsTable(pkg);
+            final XMLReader parser = SAXParserFactory.newInstance()
+                    .newSAXParser().getXMLReader();
+            final XSSFReader.SheetIterator sheets =
+                    (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                final InputStream sheet = sheets.next();
+                try {
+                    final RowHandler handler =
+                            handlers.get(sheets.getSheetName());
+                    if (handler != null) {
+                        LOG.log(Level.FINE, "Reading sheet: {0}",
+                                sheets.getSheetName());
+                        parser.setContentHandler(
+                                new XssfSheetHandler(strings, handler));
+                        parser.parse(new InputSource(sheet));
+                        handler.endSheet();
+                    }
+                } finally {
+                    sheet.close();
                 }
-                if (rowout.isEmpty() || rowout.equals("")) {
-                    rowout = cellcontent;
-                } else {
-                    rowout = rowout + "," + cellcontent;
+            }
+        } catch (OpenXML4JException ex) {
+            throw new InvalidFormatException(ex.getMessage());
+        } catch (SAXException ex) {
+            throw new InvalidFormatException(ex.getMessage());
+        } catch (ParserConfigurationException ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Row being read, sent to the handler once all its cells are read.
+     */
+    private static class RowBuffer {
+
+        /** Cells of the row. */
+        private final SheetRow row = new SheetRow();
+        /** Whether a cell was read in the row. */
+        private boolean filled = false;
+
+        /**
+         * Start the row of a cell, sending the previous row to the handler
+         * if the cell belongs to a new row.
+         * @param rownum the index of the row of the cell.
+         * @param handler the RowHandler of the sheet.
+         * @return the SheetRow in which to set the cell.
+         */
+        SheetRow at(final int rownum, final RowHandler handler) {
+            if (!this.filled || rownum != this.row.getRowNum()) {
+                this.send(handler);
+                this.row.clear(rownum);
+                this.filled = true;
+            }
+            return this.row;
+        }
+
+        /**
+         * Send the row read, if any, to the handler.
+         * @param handler the RowHandler of the sheet.
+         */
+        void send(final RowHandler handler) {
+            if (this.filled) {
+                handler.handleRow(this.row);
+                this.filled = false;
+            }
+        }
+    }
+
+    /**
+     * Listener of the records of an OLE2 file, gathering the cells of the
+     * sheets asked for into rows.
+     */
+    private static class HssfListener implements HSSFListener {
+
+        /** The RowHandler of each sheet to read, per name. */
+        private final Map<String, RowHandler> handlers;
+        /** Names of the sheets of the workbook, in order. */
+        private final List<String> names = new ArrayList<String>();
+        /** Shared strings of the workbook. */
+        private SSTRecord sst = null;
+        /** Depth of the BOF/EOF blocks (embedded charts are nested). */
+        private int depth = 0;
+        /** Index of the current sheet, -1 for the workbook globals. */
+        private int sheet = -2;
+        /** RowHandler of the current sheet, null if it is skipped. */
+        private RowHandler handler = null;
+        /** Cells of the row being read. */
+        private final RowBuffer row = new RowBuffer();
+        /** Formula whose string result is in the next StringRecord. */
+        private FormulaRecord formula = null;
+
+        /**
+         * Constructor.
+         * @param tmphandlers the RowHandler of each sheet, per name.
+         */
+        HssfListener(final Map<String, RowHandler> tmphandlers) {
+            this.handlers = tmphandlers;
+        }
+
+        @Override
+        public void processRecord(final Record record) {
+            switch (record.getSid()) {
+                case BOFRecord.sid:
+                    if (this.depth == 0) {
+                        this.sheet = this.sheet + 1;
+                        if (this.sheet >= 0
+                                && this.sheet < this.names.size()) {
+                            this.handler = this.handlers.get(
+                                    this.names.get(this.sheet));
+                            if (this.handler != null) {
+                                LOG.log(Level.FINE, "Reading sheet: {0}",
+                                        this.names.get(this.sheet));
+                            }
+                        }
+                    }
+                    this.depth = this.depth + 1;
+                    break;
+                case EOFRecord.sid:
+                    this.depth = this.depth - 1;
+                    if (this.depth == 0 && this.handler != null) {
+                        this.row.send(this.handler);
+                        this.handler.endSheet();
+                        this.handler = null;
+                    }
+                    break;
+                case BoundSheetRecord.sid:
+                    this.names.add(((BoundSheetRecord) record).getSheetname());
+                    break;
+                case SSTRecord.sid:
+                    this.sst = (SSTRecord) record;
+                    break;
+                default:
+                    if (this.handler != null && this.depth == 1) {
+                        this.processCell(record);
+                    }
+            }
+        }
+
+        /**
+         * Add the value of a cell record of the current sheet to its row.
+         * @param record the record read.
+         */
+        private void processCell(final Record record) {
+            switch (record.getSid()) {
+                case LabelSSTRecord.sid:
+                    final LabelSSTRecord label = (LabelSSTRecord) record;
+                    this.row.at(label.getRow(), this.handler).setString(
+                            label.getColumn(), this.sst.getString(
+                            label.getSSTIndex()).getString());
+                    break;
+                case LabelRecord.sid:
+                    final LabelRecord oldlabel = (LabelRecord) record;
+                    this.row.at(oldlabel.getRow(), this.handler).setString(
+                            oldlabel.getColumn(), oldlabel.getValue());
+                    break;
+                case NumberRecord.sid:
+                    final NumberRecord number = (NumberRecord) record;
+                    this.row.at(number.getRow(), this.handler).setNumber(
+                            number.getColumn(), number.getValue());
+                    break;
+                case FormulaRecord.sid:
+                    final FormulaRecord cell = (FormulaRecord) record;
+                    if (cell.hasCachedResultString()) {
+                        this.formula = cell;
+                    } else if (cell.getCachedResultType()
+                            == Cell.CELL_TYPE_NUMERIC) {
+                        this.row.at(cell.getRow(), this.handler).setNumber(
+                                cell.getColumn(), cell.getValue());
+                    }
+                    break;
+                case StringRecord.sid:
+                    if (this.formula != null) {
+                        this.row.at(this.formula.getRow(), this.handler)
+                                .setString(this.formula.getColumn(),
+                                ((StringRecord) record).getString());
+                        this.formula = null;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * SAX handler of the XML of an OOXML sheet, gathering its cells into
+     * rows.
+     */
+    private static class XssfSheetHandler extends DefaultHandler {
+
+        /** Shared strings of the workbook. */
+        private final ReadOnlySharedStringsTable strings;
+        /** RowHandler of the sheet. */
+        private final RowHandler handler;
+        /** Cells of the row being read. */
+        private final RowBuffer row = new RowBuffer();
+        /** Text of the value being read. */
+        private final StringBuilder text = new StringBuilder();
+        /** Whether the text of the current element is kept. */
+        private boolean intext = false;
+        /** Index of the current row. */
+        private int rownum = -1;
+        /** Index of the column of the current cell. */
+        private int column = -1;
+        /** Type of the current cell (attribute t), null for a number. */
+        private String type = null;
+
+        /**
+         * Constructor.
+         * @param tmpstrings the shared strings of the workbook.
+         * @param tmphandler the RowHandler of the sheet.
+         */
+        XssfSheetHandler(final ReadOnlySharedStringsTable tmpstrings,
+                final RowHandler tmphandler) {
+            this.strings = tmpstrings;
+            this.handler = tmphandler;
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName,
+                final String qName, final Attributes attributes) {
+            if ("row".equals(qName)) {
+                final String r = attributes.getValue("r");
+                this.rownum = r == null ? this.rownum + 1
+                        : Integer.parseInt(r) - 1;
+                this.column = -1;
+            } else if ("c".equals(qName)) {
+                final String r = attributes.getValue("r");
+                this.column = r == null ? this.column + 1
+                        : new CellReference(r).getCol();
+                this.type = attributes.getValue("t");
+                this.text.setLength(0);
+            } else if ("v".equals(qName) || "t".equals(qName)) {
+                this.intext = true;
+            }
+        }
+
+        @Override
+        public void characters(final char[] ch, final int start,
+                final int length) {
+            if (this.intext) {
+                this.text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName,
+                final String qName) {
+            if ("v".equals(qName) || "t".equals(qName)) {
+                this.intext = false;
+            } else if ("c".equals(qName)) {
+                if (this.text.length() > 0 && !"e".equals(this.type)
+                        && !"b".equals(this.type)) {
+                    final String value = this.text.toString();
+                    final SheetRow cells = this.row.at(this.rownum,
+                            this.handler);
+                    if ("s".equals(this.type)) {
+                        cells.setString(this.column, this.strings.getEntryAt(
+                                Integer.parseInt(value.trim())));
+                    } else if (this.type == null || "n".equals(this.type)) {
+                        cells.setNumber(this.column,
+                                Double.parseDouble(value));
+                    } else {
+                        cells.setString(this.column, value);
+                    }
                 }
+            } else if ("sheetData".equals(qName)) {
+                this.row.send(this.handler);
             }
-            out.write(rowout + "\n");
         }
-        out.close();
     }
 }
@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2013, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+/**
+ * This class gives access to the fields of a delimited line (tab separated
+ * values for example) without splitting it.
+ *
+ * Resetting the cursor on a line only records the limits of its fields, so
+ * that testing the content of a field creates no object. A String is only
+ * created when the value of a field is actually retrieved. Used with a
+ * LineReader, this replaces the line.split("\t") of the parsers.
+ *
+ * The fields are counted as by String.split: if the separator is found in the
+ * line, the empty fields at the end of the line are ignored.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class FieldCursor {
+
+    /** Character separating the fields. */
+    private final char separator;
+    /** Line currently read. */
+    private CharSequence line = "";
+    /** Index of the first character of each field in the line. */
+    private int[] starts = new int[16];
+    /** Index after the last character of each field in the line. */
+    private int[] ends = new int[16];
+    /** Number of fields of the line. */
+    private int count = 0;
+
+    /**
+     * Constructor.
+     * @param tmpseparator the character separating the fields.
+     */
+    public FieldCursor(final char tmpseparator) {
+        this.separator = tmpseparator;
+    }
+
+    /**
+     * Set the cursor on a new line.
+     * @param tmpline the line to read, it should not change while the cursor
+     * is used.
+     * @param trim whether to ignore the white spaces at the beginning and at
+     * the end of the line (as String.trim does).
+     * @return this FieldCursor.
+     */
+    public final FieldCursor reset(final CharSequence tmpline,
+            final boolean trim) {
+        return this.reset(tmpline, 0, tmpline.length(), trim);
+    }
+
+    /**
+     * Set the cursor on a part of a line.
+     * @param tmpline the line to read, it should not change while the cursor
+     * is used.
+     * @param from the index of the first character to read.
+     * @param to the index after the last character to read.
+     * @param trim whether to ignore the white spaces at the beginning and at
+     * the end of the part read (as String.trim does).
+     * @return this FieldCursor.
+     */
+    public final FieldCursor reset(final CharSequence tmpline, final int from,
+            final int to, final boolean trim) {
+        this.line = tmpline;
+        this.count = 0;
+        int first = from;
+        int last = to;
+        if (trim) {
+            while (first < last && tmpline.charAt(first) <= ' ') {
+                first++;
+            }
+            while (last > first && tmpline.charAt(last - 1) <= ' ') {
+                last--;
+            }
+        }
+        boolean found = false;
+        int fieldstart = first;
+        for (int i = first; i < last; i++) {
+            if (tmpline.charAt(i) == this.separator) {
+                this.add(fieldstart, i);
+                fieldstart = i + 1;
+                found = true;
+            }
+        }
+        this.add(fieldstart, last);
+        if (found) {
+            while (this.count > 0
+                    && this.starts[this.count - 1] == this.ends[this.count - 1]) {
+                this.count--;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Record the limits of a field.
+     * @param start the index of the first character of the field.
+     * @param end the index after the last character of the field.
+     */
+    private void add(final int start, final int end) {
+        if (this.count == this.starts.length) {
+            int[] tmp = new int[this.count * 2];
+            System.arraycopy(this.starts, 0, tmp, 0, this.count);
+            this.starts = tmp;
+            tmp = new int[this.count * 2];
+            System.arraycopy(this.ends, 0, tmp, 0, this.count);
+            this.ends = tmp;
+        }
+        this.starts[this.count] = start;
+        this.ends[this.count] = end;
+        this.count++;
+    }
+
+    /**
+     * Check that the given field exists.
+     * @param i the index of the field.
+     */
+    private void check(final int i) {
+        if (i < 0 || i >= this.count) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+    }
+
+    /**
+     * Return the number of fields of the line.
+     * @return the number of fields.
+     */
+    public final int size() {
+        return this.count;
+    }
+
+    /**
+     * Return the index in the line of the first character of a field.
+     * @param i the index of the field.
+     * @return the index of the first character of the field.
+     */
+    public final int start(final int i) {
+        this.check(i);
+        return this.starts[i];
+    }
+
+    /**
+     * Return the index in the line after the last character of a field.
+     * @param i the index of the field.
+     * @return the index after the last character of the field.
+     */
+    public final int end(final int i) {
+        this.check(i);
+        return this.ends[i];
+    }
+
+    /**
+     * Return whether a field is empty.
+     * @param i the index of the field.
+     * @return true if the field has no character.
+     */
+    public final boolean isEmpty(final int i) {
+        this.check(i);
+        return this.starts[i] == this.ends[i];
+    }
+
+    /**
+     * Return the value of a field.
+     * @param i the index of the field.
+     * @return a String of the content of the field.
+     */
+    public final String get(final int i) {
+        this.check(i);
+        return this.substring(this.starts[i], this.ends[i]);
+    }
+
+    /**
+     * Return the value of a field without its leading and trailing white
+     * spaces.
+     * @param i the index of the field.
+     * @return a String of the trimmed content of the field.
+     */
+    public final String getTrimmed(final int i) {
+        this.check(i);
+        int first = this.starts[i];
+        int last = this.ends[i];
+        while (first < last && this.line.charAt(first) <= ' ') {
+            first++;
+        }
+        while (last > first && this.line.charAt(last - 1) <= ' ') {
+            last--;
+        }
+        return this.substring(first, last);
+    }
+
+    /**
+     * Return the value of a field up to the first occurrence of a character,
+     * as field.split(c)[0] would.
+     * @param i the index of the field.
+     * @param c the character at which to stop.
+     * @return a String of the beginning of the field.
+     */
+    public final String before(final int i, final char c) {
+        int index = this.indexOf(i, c);
+        return this.substring(this.starts[i],
+                index < 0 ? this.ends[i] : index);
+    }
+
+    /**
+     * Return the value following the first occurrence of the given key in a
+     * field, up to the next ';' or the end of the field.
+     * This replaces field.split(key)[1].split(";")[0].
+     * @param i the index of the field.
+     * @param key the String preceding the value (for example "UniRef100_").
+     * @return a String of the value or null if the key is not in the field.
+     */
+    public final String attribute(final int i, final String key) {
+        int index = this.indexOf(i, key);
+        if (index < 0) {
+            return null;
+        }
+        final int start = index + key.length();
+        int end = this.indexOf(';', start, this.ends[i]);
+        if (end < 0) {
+            end = this.ends[i];
+        }
+        return this.substring(start, end);
+    }
+
+    /**
+     * Return the index in the line of the first occurrence of a character in
+     * a field.
+     * @param i the index of the field.
+     * @param c the character to look for.
+     * @return the index of the character in the line or -1 if it is not found.
+     */
+    public final int indexOf(final int i, final char c) {
+        this.check(i);
+        return this.indexOf(c, this.starts[i], this.ends[i]);
+    }
+
+    /**
+     * Return the index in the line of the first occurrence of a character
+     * between two positions.
+     * @param c the character to look for.
+     * @param from the index from which to look.
+     * @param to the index at which to stop looking.
+     * @return the index of the character in the line or -1 if it is not found.
+     */
+    public final int indexOf(final char c, final int from, final int to) {
+        for (int j = from; j < to; j++) {
+            if (this.line.charAt(j) == c) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the index in the line of the first occurrence of a String in a
+     * field.
+     * @param i the index of the field.
+     * @param s the String to look for.
+     * @return the index of the String in the line or -1 if it is not found.
+     */
+    public final int indexOf(final int i, final String s) {
+        this.check(i);
+        final int last = this.ends[i] - s.length();
+        for (int j = this.starts[i]; j <= last; j++) {
+            if (this.regionMatches(j, s, false)) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return whether a field is equal to the given String.
+     * @param i the index of the field.
+     * @param s the String to compare the field with.
+     * @return true if the field and the String are equal.
+     */
+    public final boolean equals(final int i, final String s) {
+        this.check(i);
+        return this.ends[i] - this.starts[i] == s.length()
+                && this.regionMatches(this.starts[i], s, false);
+    }
+
+    /**
+     * Return whether a field is equal to the given String, ignoring case.
+     * @param i the index of the field.
+     * @param s the String to compare the field with.
+     * @return true if the field and the String are equal ignoring case.
+     */
+    public final boolean equalsIgnoreCase(final int i, final String s) {
+        this.check(i);
+        return this.ends[i] - this.starts[i] == s.length()
+                && this.regionMatches(this.starts[i], s, true);
+    }
+
+    /**
+     * Return whether a field starts with the given String.
+     * @param i the index of the field.
+     * @param prefix the String the field should start with.
+     * @return true if the field starts with the prefix.
+     */
+    public final boolean startsWith(final int i, final String prefix) {
+        this.check(i);
+        return this.ends[i] - this.starts[i] >= prefix.length()
+                && this.regionMatches(this.starts[i], prefix, false);
+    }
+
+    /**
+     * Return the integer value of a field.
+     * @param i the index of the field.
+     * @return the int written in the field.
+     * @throws NumberFormatException if the field is not an integer.
+     */
+    public final int parseInt(final int i) {
+        this.check(i);
+        int j = this.starts[i];
+        final int end = this.ends[i];
+        boolean negative = false;
+        if (j < end && (this.line.charAt(j) == '-'
+                || this.line.charAt(j) == '+')) {
+            negative = this.line.charAt(j) == '-';
+            j++;
+        }
+        if (j == end) {
+            throw new NumberFormatException(
+                    "For input string: \"" + this.get(i) + "\"");
+        }
+        long value = 0;
+        for (; j < end; j++) {
+            final char c = this.line.charAt(j);
+            if (c < '0' || c > '9' || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException(
+                        "For input string: \"" + this.get(i) + "\"");
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw new NumberFormatException(
+                    "For input string: \"" + this.get(i) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Return a part of the line.
+     * @param from the index of the first character.
+     * @param to the index after the last character.
+     * @return a String of the characters between from and to.
+     */
+    public final String substring(final int from, final int to) {
+        return this.line.subSequence(from, to).toString();
+    }
+
+    /**
+     * Compare a region of the line with a String.
+     * @param offset the index in the line at which the region starts.
+     * @param s the String to compare with, the region has its length.
+     * @param ignorecase whether to ignore the case of the characters.
+     * @return true if the region and the String match.
+     */
+    private boolean regionMatches(final int offset, final String s,
+            final boolean ignorecase) {
+        for (int k = 0; k < s.length(); k++) {
+            char c1 = this.line.charAt(offset + k);
+            char c2 = s.charAt(k);
+            if (c1 != c2 && (!ignorecase
+                    || Character.toUpperCase(c1) != Character.toUpperCase(c2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
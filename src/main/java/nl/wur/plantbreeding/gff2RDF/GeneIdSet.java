@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class keeps the set of the gene identifiers already seen by a parser,
+ * to add each gene only once to the model.
+ *
+ * The Arabidopsis locus identifiers (AGI codes such as AT1G01010) are
+ * encoded into an int and stored in an open addressing hash table, which
+ * avoids keeping a String for each of them. The other identifiers are kept
+ * in a HashSet.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class GeneIdSet {
+
+    /** Chromosomes of the AGI codes, in the order of their encoding. */
+    private static final String CHROMOSOMES = "12345CM";
+    /** Number of digits of the gene number of the AGI codes. */
+    private static final int DIGITS = 5;
+    /** Value of the empty slots of the table. */
+    private static final int EMPTY = 0;
+
+    /** Open addressing table of the encoded AGI codes. */
+    private int[] table = new int[1 << 10];
+    /** Number of encoded AGI codes in the table. */
+    private int codes = 0;
+    /** Identifiers which are not AGI codes. */
+    private final Set<String> others = new HashSet<String>();
+
+    /**
+     * Add an identifier to the set.
+     * @param id the gene identifier.
+     * @return true if the identifier was not already in the set.
+     */
+    public final boolean add(final CharSequence id) {
+        final int code = encode(id);
+        if (code == EMPTY) {
+            return this.others.add(id.toString());
+        }
+        if ((this.codes + 1) * 2 > this.table.length) {
+            this.grow();
+        }
+        if (insert(this.table, code)) {
+            this.codes++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Return whether an identifier is in the set.
+     * @param id the gene identifier.
+     * @return true if the identifier was added to the set.
+     */
+    public final boolean contains(final CharSequence id) {
+        final int code = encode(id);
+        if (code == EMPTY) {
+            return this.others.contains(id.toString());
+        }
+        final int mask = this.table.length - 1;
+        int i = mix(code) & mask;
+        while (this.table[i] != EMPTY) {
+            if (this.table[i] == code) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Return the number of identifiers in the set.
+     * @return the number of identifiers.
+     */
+    public final int size() {
+        return this.codes + this.others.size();
+    }
+
+    /**
+     * Encode an AGI code (AT, the chromosome, G and a five digits number)
+     * into a strictly positive int.
+     * @param id the gene identifier.
+     * @return the code of the identifier or EMPTY if it is not an AGI code.
+     */
+    static int encode(final CharSequence id) {
+        if (id.length() != 4 + DIGITS || id.charAt(0) != 'A'
+                || id.charAt(1) != 'T' || id.charAt(3) != 'G') {
+            return EMPTY;
+        }
+        final int chromosome = CHROMOSOMES.indexOf(id.charAt(2));
+        if (chromosome < 0) {
+            return EMPTY;
+        }
+        int number = 0;
+        for (int i = 4; i < id.length(); i++) {
+            final char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return EMPTY;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return chromosome * 100000 + number + 1;
+    }
+
+    /**
+     * Spread the bits of a code over the table.
+     * @param code the encoded identifier.
+     * @return the hash of the code.
+     */
+    private static int mix(final int code) {
+        final int h = code * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Insert a code in a table.
+     * @param tmptable the table in which to insert the code.
+     * @param code the encoded identifier.
+     * @return true if the code was not already in the table.
+     */
+    private static boolean insert(final int[] tmptable, final int code) {
+        final int mask = tmptable.length - 1;
+        int i = mix(code) & mask;
+        while (tmptable[i] != EMPTY) {
+            if (tmptable[i] == code) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        tmptable[i] = code;
+        return true;
+    }
+
+    /**
+     * Double the size of the table.
+     */
+    private void grow() {
+        final int[] tmp = new int[this.table.length * 2];
+        for (int code : this.table) {
+            if (code != EMPTY) {
+                insert(tmp, code);
+            }
+        }
+        this.table = tmp;
+    }
+}
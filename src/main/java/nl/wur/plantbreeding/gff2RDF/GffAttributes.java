@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2013, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.nio.charset.Charset;
+
+/**
+ * This class decodes the attributes of a GFF3 line (its 9th column).
+ *
+ * Resetting the object on the column reads it once and records, for each
+ * "key=value" attribute, the limits of its key and of its value. Looking up
+ * a key then only compares characters of the line, and the value is only
+ * percent-decoded (%3B for ';' for example) when it is retrieved.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class GffAttributes {
+
+    /** Charset of the percent-encoded bytes. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    /** Line currently read. */
+    private CharSequence line = "";
+    /** Index of the first character of each key in the line. */
+    private int[] keystarts = new int[8];
+    /** Index of the '=' following each key in the line. */
+    private int[] equals = new int[8];
+    /** Index after the last character of each value in the line. */
+    private int[] valueends = new int[8];
+    /** Number of attributes. */
+    private int count = 0;
+
+    /**
+     * Set the object on the attributes of a line.
+     * @param tmpline the line to read, it should not change while the
+     * attributes are used.
+     * @param from the index of the first character of the attributes.
+     * @param to the index after the last character of the attributes.
+     * @return this GffAttributes.
+     */
+    public final GffAttributes reset(final CharSequence tmpline,
+            final int from, final int to) {
+        this.line = tmpline;
+        this.count = 0;
+        int start = from;
+        int equal = -1;
+        for (int i = from; i <= to; i++) {
+            final char c = i < to ? tmpline.charAt(i) : ';';
+            if (c == '=' && equal < 0) {
+                equal = i;
+            } else if (c == ';') {
+                // Attributes without '=' are not key/value pairs, skip them
+                if (equal >= 0) {
+                    while (start < equal && tmpline.charAt(start) == ' ') {
+                        start++;
+                    }
+                    this.add(start, equal, i);
+                }
+                start = i + 1;
+                equal = -1;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Record the limits of an attribute.
+     * @param keystart the index of the first character of the key.
+     * @param equal the index of the '=' following the key.
+     * @param valueend the index after the last character of the value.
+     */
+    private void add(final int keystart, final int equal, final int valueend) {
+        if (this.count == this.keystarts.length) {
+            final int size = this.count * 2;
+            int[] tmp = new int[size];
+            System.arraycopy(this.keystarts, 0, tmp, 0, this.count);
+            this.keystarts = tmp;
+            tmp = new int[size];
+            System.arraycopy(this.equals, 0, tmp, 0, this.count);
+            this.equals = tmp;
+            tmp = new int[size];
+            System.arraycopy(this.valueends, 0, tmp, 0, this.count);
+            this.valueends = tmp;
+        }
+        this.keystarts[this.count] = keystart;
+        this.equals[this.count] = equal;
+        this.valueends[this.count] = valueend;
+        this.count++;
+    }
+
+    /**
+     * Return the number of attributes.
+     * @return the number of key/value pairs read.
+     */
+    public final int size() {
+        return this.count;
+    }
+
+    /**
+     * Return whether the key of an attribute is the given one.
+     * @param i the index of the attribute.
+     * @param key the key to compare to.
+     * @param ignorecase whether the case of the characters is ignored.
+     * @return true if the attribute has this key.
+     */
+    public final boolean isKey(final int i, final String key,
+            final boolean ignorecase) {
+        if (i < 0 || i >= this.count) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        final int start = this.keystarts[i];
+        if (this.equals[i] - start != key.length()) {
+            return false;
+        }
+        for (int j = 0; j < key.length(); j++) {
+            char c1 = this.line.charAt(start + j);
+            char c2 = key.charAt(j);
+            if (c1 != c2 && (!ignorecase
+                    || Character.toLowerCase(c1)
+                    != Character.toLowerCase(c2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the index of the first attribute with the given key.
+     * @param key the key to look for.
+     * @param ignorecase whether the case of the characters is ignored.
+     * @return the index of the attribute or -1 if there is none.
+     */
+    public final int indexOf(final String key, final boolean ignorecase) {
+        for (int i = 0; i < this.count; i++) {
+            if (this.isKey(i, key, ignorecase)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the decoded value of the first attribute with the given key.
+     * @param key the key to look for (for example "ID").
+     * @return a String of the value or null if there is no such attribute.
+     */
+    public final String get(final String key) {
+        final int i = this.indexOf(key, false);
+        return i < 0 ? null : this.value(i);
+    }
+
+    /**
+     * Return the decoded value of an attribute.
+     * @param i the index of the attribute.
+     * @return a String of the value of the attribute.
+     */
+    public final String value(final int i) {
+        if (i < 0 || i >= this.count) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        return this.decode(this.equals[i] + 1, this.valueends[i]);
+    }
+
+    /**
+     * Percent-decode a part of the line.
+     * @param from the index of the first character to decode.
+     * @param to the index after the last character to decode.
+     * @return a String of the decoded characters.
+     */
+    private String decode(final int from, final int to) {
+        int i = from;
+        while (i < to && this.line.charAt(i) != '%') {
+            i++;
+        }
+        if (i == to) {
+            return this.line.subSequence(from, to).toString();
+        }
+        final StringBuilder sb = new StringBuilder(to - from);
+        sb.append(this.line, from, i);
+        byte[] bytes = null;
+        while (i < to) {
+            // Consecutive escaped bytes form one UTF-8 sequence
+            int n = 0;
+            while (i + 2 < to && this.line.charAt(i) == '%'
+                    && hex(this.line.charAt(i + 1)) >= 0
+                    && hex(this.line.charAt(i + 2)) >= 0) {
+                if (bytes == null) {
+                    bytes = new byte[(to - i) / 3];
+                }
+                bytes[n++] = (byte) ((hex(this.line.charAt(i + 1)) << 4)
+                        + hex(this.line.charAt(i + 2)));
+                i += 3;
+            }
+            if (n > 0) {
+                sb.append(new String(bytes, 0, n, UTF8));
+            } else {
+                sb.append(this.line.charAt(i));
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Return the value of an hexadecimal digit.
+     * @param c the character of the digit.
+     * @return the value of the digit or -1 if c is not an hexadecimal digit.
+     */
+    private static int hex(final char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+}
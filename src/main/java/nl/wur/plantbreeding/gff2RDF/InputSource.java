@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+/**
+ * This class opens the input files of the parsers, compressed or not.
+ *
+ * A file can be given by the name of its uncompressed version: if it is not
+ * present, its compressed copy (with the suffix .gz, .zip or .bz2) is used
+ * instead. The compression is detected from the first bytes of the file and
+ * the content is decompressed on the fly by a background thread, which hands
+ * blocks of data to the reading thread through a bounded queue. The folders
+ * of the species can thus keep only the compressed files.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public final class InputSource {
+
+    /** Suffixes of the compressed copies of a file, in order of preference. */
+    private static final String[] SUFFIXES = {".gz", ".zip", ".bz2"};
+    /** Size of the buffers and of the blocks decompressed (64 KB). */
+    private static final int BLOCK_SIZE = 1 << 16;
+    /** Number of decompressed blocks waiting to be read. */
+    private static final int QUEUE_SIZE = 32;
+
+    /**
+     * Private constructor, this class only has static methods.
+     */
+    private InputSource() {
+    }
+
+    /**
+     * Return the path of the file to read for the given file: the file
+     * itself if it exists, otherwise its first compressed copy found.
+     * @param filename the path to the (uncompressed) file.
+     * @return the path to the file to read, the given one if no copy is
+     * found.
+     */
+    public static String resolve(final String filename) {
+        if (new File(filename).exists()) {
+            return filename;
+        }
+        for (String suffix : SUFFIXES) {
+            if (new File(filename + suffix).exists()) {
+                return filename + suffix;
+            }
+        }
+        return filename;
+    }
+
+    /**
+     * Return whether the file to read for the given file is compressed.
+     * @param filename the path to the (uncompressed) file.
+     * @return true if the file read is a gzip, zip or bzip2 file.
+     * @throws IOException When something goes wrong with the file.
+     */
+    public static boolean isCompressed(final String filename)
+            throws IOException {
+        final InputStream in = new FileInputStream(resolve(filename));
+        try {
+            final byte[] magic = new byte[4];
+            int read = 0;
+            int n;
+            while (read < magic.length
+                    && (n = in.read(magic, read, magic.length - read)) > 0) {
+                read = read + n;
+            }
+            return getFormat(magic, read) != null;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Open the given file, decompressing it if needed.
+     * @param filename the path to the (uncompressed) file.
+     * @return an InputStream of the uncompressed content of the file.
+     * @throws IOException When something goes wrong with the file.
+     */
+    public static InputStream open(final String filename) throws IOException {
+        final InputStream raw = new BufferedInputStream(
+                new FileInputStream(resolve(filename)), BLOCK_SIZE);
+        final String format;
+        try {
+            raw.mark(4);
+            final byte[] magic = new byte[4];
+            int read = 0;
+            int n;
+            while (read < magic.length
+                    && (n = raw.read(magic, read, magic.length - read)) > 0) {
+                read = read + n;
+            }
+            raw.reset();
+            format = getFormat(magic, read);
+        } catch (IOException ex) {
+            raw.close();
+            throw ex;
+        }
+        if (format == null) {
+            return raw;
+        }
+
+        final InputStream in;
+        try {
+            if (format.equals("gzip")) {
+                in = new GZIPInputStream(raw, BLOCK_SIZE);
+            } else if (format.equals("bzip2")) {
+                in = new BZip2CompressorInputStream(raw, true);
+            } else {
+                // Read the first file of the archive
+                final ZipInputStream zin = new ZipInputStream(raw);
+                ZipEntry ze = zin.getNextEntry();
+                while (ze != null && ze.isDirectory()) {
+                    ze = zin.getNextEntry();
+                }
+                if (ze == null) {
+                    throw new IOException("No file in the archive "
+                            + resolve(filename));
+                }
+                in = zin;
+            }
+        } catch (IOException ex) {
+            raw.close();
+            throw ex;
+        }
+        return new BackgroundInputStream(in);
+    }
+
+    /**
+     * Return the compression format corresponding to the first bytes of a
+     * file.
+     * @param magic the first bytes of the file.
+     * @param length the number of bytes read.
+     * @return "gzip", "zip" or "bzip2", or null if the file is not
+     * compressed.
+     */
+    private static String getFormat(final byte[] magic, final int length) {
+        if (length >= 2 && (magic[0] & 0xff) == 0x1f
+                && (magic[1] & 0xff) == 0x8b) {
+            return "gzip";
+        } else if (length >= 4 && magic[0] == 'P' && magic[1] == 'K'
+                && magic[2] == 3 && magic[3] == 4) {
+            return "zip";
+        } else if (length >= 3 && magic[0] == 'B' && magic[1] == 'Z'
+                && magic[2] == 'h') {
+            return "bzip2";
+        }
+        return null;
+    }
+
+    /**
+     * InputStream reading another stream on a background thread.
+     * The blocks read by the thread are queued, so that the decompression
+     * of the next blocks goes on while the current one is parsed.
+     */
+    private static class BackgroundInputStream extends InputStream {
+
+        /** Empty block marking the end of the stream. */
+        private static final byte[] END = new byte[0];
+
+        /** Stream read by the background thread. */
+        private final InputStream source;
+        /** Blocks read and not yet consumed. */
+        private final BlockingQueue<byte[]> blocks =
+                new ArrayBlockingQueue<byte[]>(QUEUE_SIZE);
+        /** Thread reading the source. */
+        private final Thread reader;
+        /** Error met by the background thread, if any. */
+        private volatile IOException error = null;
+        /** Block currently consumed. */
+        private byte[] block = null;
+        /** Position of the next byte to return in the current block. */
+        private int pos = 0;
+        /** Number of bytes available in the current block. */
+        private int limit = 0;
+
+        /**
+         * Constructor, starts reading the source.
+         * @param tmpsource the stream to read in the background.
+         */
+        BackgroundInputStream(final InputStream tmpsource) {
+            this.source = tmpsource;
+            this.reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    fill();
+                }
+            }, "InputSource reader");
+            this.reader.setDaemon(true);
+            this.reader.start();
+        }
+
+        /**
+         * Read the source block by block into the queue, until its end,
+         * an error or the closing of this stream.
+         */
+        private void fill() {
+            boolean closed = false;
+            boolean complete = false;
+            try {
+                while (true) {
+                    final byte[] buf = new byte[BLOCK_SIZE];
+                    int read = 0;
+                    int n = 0;
+                    while (read < buf.length
+                            && (n = this.source.read(buf, read,
+                            buf.length - read)) != -1) {
+                        read = read + n;
+                    }
+                    if (read > 0) {
+                        this.blocks.put(read == buf.length ? buf
+                                : Arrays.copyOf(buf, read));
+                    }
+                    if (n == -1) {
+                        break;
+                    }
+                }
+                complete = true;
+            } catch (IOException ex) {
+                this.error = ex;
+            } catch (RuntimeException ex) {
+                // A decompressor may fail this way on a corrupted input
+                this.error = new IOException("Cannot read the input: "
+                        + ex.getMessage(), ex);
+            } catch (InterruptedException ex) {
+                // The stream was closed
+                closed = true;
+            } finally {
+                // The consumer always gets the end of the stream
+                if (!closed) {
+                    if (!complete && this.error == null) {
+                        this.error = new IOException(
+                                "The reading of the input stopped");
+                    }
+                    try {
+                        this.blocks.put(END);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Make a new block available if the current one is consumed.
+         * @return false if the end of the stream is reached.
+         * @throws IOException if the background thread failed to read.
+         */
+        private boolean nextBlock() throws IOException {
+            if (this.pos < this.limit) {
+                return true;
+            }
+            if (this.block == END) {
+                return false;
+            }
+            try {
+                this.block = this.blocks.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            this.pos = 0;
+            this.limit = this.block.length;
+            if (this.block == END) {
+                if (this.error != null) {
+                    throw this.error;
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!this.nextBlock()) {
+                return -1;
+            }
+            final int b = this.block[this.pos] & 0xff;
+            this.pos = this.pos + 1;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len)
+                throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.nextBlock()) {
+                return -1;
+            }
+            final int n = Math.min(len, this.limit - this.pos);
+            System.arraycopy(this.block, this.pos, b, off, n);
+            this.pos = this.pos + n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.reader.interrupt();
+            try {
+                this.reader.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.source.close();
+        }
+    }
+}
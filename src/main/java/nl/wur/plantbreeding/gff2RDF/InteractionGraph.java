@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.Arrays;
+
+/**
+ * This class keeps the protein-protein interactions read from the MITAB
+ * files (see MitabReader), without their duplicates, until they are added
+ * to the model.
+ *
+ * Each protein is stored once, in a dictionary giving it an int identifier.
+ * An interaction is undirected: it is a long made of the smallest and of the
+ * largest identifiers of its two proteins, so that A-B and B-A are the same
+ * interaction. The interactions are kept in a list, in the order in which
+ * they were found, with the number of times each was found (its evidences),
+ * and indexed by an open addressing hash table of their position in the
+ * list to know whether they were already seen.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class InteractionGraph {
+
+    /** Names of the proteins, per identifier. */
+    private String[] proteins = new String[1 << 10];
+    /** Number of proteins in the dictionary. */
+    private int proteincnt = 0;
+    /**
+     * Open addressing table of the dictionary: the identifier of a protein
+     * plus one, 0 for the empty slots.
+     */
+    private int[] index = new int[1 << 11];
+    /**
+     * Open addressing table of the interactions: the position of an
+     * interaction in the list plus one, 0 for the empty slots.
+     */
+    private int[] table = new int[1 << 11];
+    /** Interactions, in the order in which they were added. */
+    private long[] interactions = new long[1 << 10];
+    /** Number of times each interaction was added. */
+    private int[] evidences = new int[1 << 10];
+    /** Number of interactions. */
+    private int size = 0;
+
+    /**
+     * Add an interaction between two proteins, or an evidence of it if it
+     * is already known (in either direction).
+     * @param protein1 the identifier (accession) of the first protein.
+     * @param protein2 the identifier (accession) of the second protein.
+     * @return true if the interaction was not already known.
+     */
+    public final boolean add(final String protein1, final String protein2) {
+        final int id1 = this.getId(protein1);
+        final int id2 = this.getId(protein2);
+        final long edge = id1 < id2 ? ((long) id1 << 32) | id2
+                : ((long) id2 << 32) | id1;
+        final int mask = this.table.length - 1;
+        int i = hash(edge) & mask;
+        while (this.table[i] != 0) {
+            final int pos = this.table[i] - 1;
+            if (this.interactions[pos] == edge) {
+                this.evidences[pos]++;
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        if (this.size == this.interactions.length) {
+            this.interactions = Arrays.copyOf(this.interactions,
+                    this.size * 2);
+            this.evidences = Arrays.copyOf(this.evidences, this.size * 2);
+        }
+        this.interactions[this.size] = edge;
+        this.evidences[this.size] = 1;
+        this.size++;
+        if (this.size * 2 > this.table.length) {
+            this.table = new int[this.table.length * 2];
+            for (int pos = 0; pos < this.size; pos++) {
+                this.insert(pos);
+            }
+        } else {
+            this.table[i] = this.size;
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of interactions.
+     * @return the number of distinct interactions added.
+     */
+    public final int size() {
+        return this.size;
+    }
+
+    /**
+     * Return the number of times an interaction was added.
+     * @param i the position of the interaction, in the order in which the
+     * interactions were found.
+     * @return the number of evidences of the interaction.
+     */
+    public final int getEvidences(final int i) {
+        return this.evidences[i];
+    }
+
+    /**
+     * Return the number of proteins of the dictionary.
+     * @return the number of distinct proteins of the interactions.
+     */
+    public final int getProteinCount() {
+        return this.proteincnt;
+    }
+
+    /**
+     * Add each interaction once to the model, in the order in which they
+     * were found (see ObjectToModel.addProteinProteinInteractionToModel).
+     * @param model the Jena Model in which to add the interactions.
+     * @param evidence whether to add the number of evidences of each
+     * interaction as well.
+     * @return the Jena Model with the interactions.
+     */
+    public final Model addToModel(Model model, final boolean evidence) {
+        final ObjectToModel obj2m = new ObjectToModel();
+        for (int i = 0; i < this.size; i++) {
+            final long edge = this.interactions[i];
+            final String protein1 = this.proteins[(int) (edge >>> 32)];
+            final String protein2 = this.proteins[(int) edge];
+            if (evidence) {
+                model = obj2m.addProteinProteinInteractionToModel(protein1,
+                        protein2, this.evidences[i], model);
+            } else {
+                model = obj2m.addProteinProteinInteractionToModel(protein1,
+                        protein2, model);
+            }
+        }
+        // Add the statements still pending to the model
+        obj2m.flush();
+        return model;
+    }
+
+    /**
+     * Return the identifier of a protein, adding it to the dictionary if
+     * needed.
+     * @param protein the name of the protein.
+     * @return the identifier of the protein.
+     */
+    private int getId(final String protein) {
+        int mask = this.index.length - 1;
+        int i = mix(protein.hashCode()) & mask;
+        while (this.index[i] != 0) {
+            if (this.proteins[this.index[i] - 1].equals(protein)) {
+                return this.index[i] - 1;
+            }
+            i = (i + 1) & mask;
+        }
+        if (this.proteincnt == this.proteins.length) {
+            this.proteins = Arrays.copyOf(this.proteins, this.proteincnt * 2);
+        }
+        final int id = this.proteincnt;
+        this.proteins[id] = protein;
+        this.proteincnt++;
+        if (this.proteincnt * 2 > this.index.length) {
+            this.index = new int[this.index.length * 2];
+            mask = this.index.length - 1;
+            for (int j = 0; j < this.proteincnt; j++) {
+                int k = mix(this.proteins[j].hashCode()) & mask;
+                while (this.index[k] != 0) {
+                    k = (k + 1) & mask;
+                }
+                this.index[k] = j + 1;
+            }
+        } else {
+            this.index[i] = id + 1;
+        }
+        return id;
+    }
+
+    /**
+     * Spread the bits of a hash over the table.
+     * @param hash the hash of a key.
+     * @return the mixed hash.
+     */
+    private static int mix(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Return the hash of an interaction.
+     * @param edge the interaction.
+     * @return the hash of the interaction.
+     */
+    private static int hash(final long edge) {
+        return (int) ((edge * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * Index an interaction of the list in the table, knowing it is not in
+     * it yet.
+     * @param pos the position of the interaction in the list.
+     */
+    private void insert(final int pos) {
+        final int mask = this.table.length - 1;
+        int i = hash(this.interactions[pos]) & mask;
+        while (this.table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        this.table[i] = pos + 1;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2013, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * This class reads a text file line by line into a reusable buffer.
+ *
+ * Contrary to BufferedReader.readLine, no String is created for each line:
+ * the current line is accessible through the CharSequence interface of the
+ * reader itself and is overwritten by the next call to next(). Combined with
+ * a FieldCursor, this allows to skip the lines which are not of interest
+ * without creating any object.
+ *
+ * Lines are terminated, as for BufferedReader, by '\n', '\r' or "\r\n".
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class LineReader implements CharSequence, Closeable {
+
+    /** Reader from which the lines are read. */
+    private final Reader in;
+    /** Buffer of the characters read from the Reader. */
+    private final char[] buffer = new char[1 << 16];
+    /** Position of the next character to use in the buffer. */
+    private int pos = 0;
+    /** Number of characters available in the buffer. */
+    private int limit = 0;
+    /** Whether the next character should be skipped if it is a '\n'. */
+    private boolean skiplf = false;
+    /** Characters of the current line. */
+    private char[] line = new char[256];
+    /** Length of the current line. */
+    private int length = 0;
+
+    /**
+     * Constructor reading the given file.
+     * The file may be compressed or only present as a compressed copy (see
+     * InputSource).
+     * @param inputfilename the path to the file to read.
+     * @throws IOException When something goes wrong with the file.
+     */
+    public LineReader(final String inputfilename) throws IOException {
+        this(new InputStreamReader(InputSource.open(inputfilename)));
+    }
+
+    /**
+     * Constructor reading from the given Reader.
+     * @param tmpin the Reader to read from.
+     */
+    public LineReader(final Reader tmpin) {
+        this.in = tmpin;
+    }
+
+    /**
+     * Read the next line.
+     * @return true if a line was read, false if the end of the stream was
+     * reached.
+     * @throws IOException When something goes wrong while reading.
+     */
+    public final boolean next() throws IOException {
+        this.length = 0;
+        boolean read = false;
+        while (true) {
+            if (this.pos >= this.limit) {
+                this.pos = 0;
+                this.limit = this.in.read(this.buffer, 0, this.buffer.length);
+                if (this.limit <= 0) {
+                    this.limit = 0;
+                    return read;
+                }
+            }
+            if (this.skiplf) {
+                this.skiplf = false;
+                if (this.buffer[this.pos] == '\n') {
+                    this.pos = this.pos + 1;
+                    continue;
+                }
+            }
+            int i = this.pos;
+            while (i < this.limit && this.buffer[i] != '\n'
+                    && this.buffer[i] != '\r') {
+                i++;
+            }
+            this.append(this.pos, i);
+            read = true;
+            if (i < this.limit) {
+                this.skiplf = this.buffer[i] == '\r';
+                this.pos = i + 1;
+                return true;
+            }
+            this.pos = this.limit;
+        }
+    }
+
+    /**
+     * Append characters of the buffer to the current line.
+     * @param from the index of the first character to append.
+     * @param to the index after the last character to append.
+     */
+    private void append(final int from, final int to) {
+        final int n = to - from;
+        if (this.length + n > this.line.length) {
+            char[] tmp = new char[Math.max(this.line.length * 2,
+                    this.length + n)];
+            System.arraycopy(this.line, 0, tmp, 0, this.length);
+            this.line = tmp;
+        }
+        System.arraycopy(this.buffer, from, this.line, this.length, n);
+        this.length = this.length + n;
+    }
+
+    @Override
+    public final int length() {
+        return this.length;
+    }
+
+    @Override
+    public final char charAt(final int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return this.line[index];
+    }
+
+    /**
+     * Return a copy of a part of the current line.
+     * @param start the index of the first character.
+     * @param end the index after the last character.
+     * @return a String of the characters between start and end.
+     */
+    @Override
+    public final String subSequence(final int start, final int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException(
+                    "Range: " + start + "-" + end);
+        }
+        return new String(this.line, start, end - start);
+    }
+
+    /**
+     * Return a copy of the current line.
+     * @return a String of the current line.
+     */
+    @Override
+    public final String toString() {
+        return new String(this.line, 0, this.length);
+    }
+
+    /**
+     * Close the underlying Reader.
+     * @throws IOException When something goes wrong while closing.
+     */
+    @Override
+    public final void close() throws IOException {
+        this.in.close();
+    }
+}
@@ -31,12 +31,10 @@
 package nl.wur.plantbreeding.gff2RDF.Map;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 import nl.wur.plantbreeding.gff2RDF.object.Marker;
 
@@ -60,28 +58,24 @@ public class Ma_ParserMapInfo {
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
 
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        String strline;
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
         //Read File Line By Line
         int cnt = 0;
-        while ((strline = br.readLine()) != null) {
-            final String[] content = strline.split("\t");
+        while (br.next()) {
+            content.reset(br, false);
             // Deals with gene
-            if (content.length > 1) {
+            if (content.size() > 1) {
                 Marker marker = new Marker();
-                marker.setId(content[0].trim());
-                marker.setName(content[1].trim());
-                marker.setChromosome(content[2].trim());
+                marker.setId(content.getTrimmed(0));
+                marker.setName(content.getTrimmed(1));
+                marker.setChromosome(content.getTrimmed(2));
                 if (!physical) {
-                    marker.setPosition(content[3].trim());
+                    marker.setPosition(content.getTrimmed(3));
                     marker.setGenetic(true);
                 } else {
-                    marker.setStart(Integer.parseInt(content[3].trim()));
-                    marker.setStop(Integer.parseInt(content[4].trim()));
+                    marker.setStart(Integer.parseInt(content.getTrimmed(3)));
+                    marker.setStop(Integer.parseInt(content.getTrimmed(4)));
                     marker.setGenetic(false);
                 }
                 model = obj2m.addToModel(marker, model);
@@ -89,7 +83,10 @@ public class Ma_ParserMapInfo {
             }
         }
         //Close the input stream
-        in.close();
+        br.close();
+
+        // Add the statements still pending to the model
+        obj2m.flush();
         return model;
     }
 
@@ -31,7 +31,7 @@
 package nl.wur.plantbreeding.gff2RDF;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -53,6 +53,8 @@ class MapAction {
             MapAction.class.getName());
     /** Folder in which the files are/will be stored. */
     private String folder = "Map/";
+    /** ModelIO used to create and save the model. */
+    private ModelIO mio = new ModelIO();
 
     /**
      * Default constructor.
@@ -82,6 +84,14 @@ class MapAction {
         this.folder = tmpfolder;
     }
 
+    /**
+     * Set the ModelIO used to create and save the model.
+     * @param tmpmio the ModelIO to use.
+     */
+    public void setModelIO(ModelIO tmpmio) {
+        this.mio = tmpmio;
+    }
+
     /**
      * This function reads the downloaded files and conver their content into
      * an RDF model which is stored in a Jena Model object.
@@ -90,12 +100,24 @@ class MapAction {
      */
     public void main(String inputfilename, boolean physical,
             boolean debug) {
-        Model model = ModelFactory.createDefaultModel();
+        String outputfilename = this.folder + "mapmodel";
+        Model model;
+        try {
+            model = this.mio.createModel(outputfilename);
+        } catch (IOException ex) {
+            System.err.println();
+            LOG.log(Level.SEVERE, "Error while opening: {0}", ex.getMessage());
+            if (debug) {
+                ex.printStackTrace(System.err);
+            }
+            return;
+        }
 
         try {
             // GFF file containing the gene information;
             Ma_ParserMapInfo parser = new Ma_ParserMapInfo();
-            model = parser.addMarkersToModel(inputfilename, model, physical);
+            parser.addMarkersToModel(inputfilename, this.mio.getNamedModel(
+                    model, new File(inputfilename).getName()), physical);
         } catch (IOException ex) {
             System.err.println();
             LOG.log(Level.SEVERE, "IO Error in " + inputfilename
@@ -105,13 +127,9 @@ class MapAction {
             }
         }
 
-        System.out.println("Model final: " + model.size());
+        System.out.println("Model final: " + this.mio.size(model));
         try {
-            if (!model.isEmpty()) {
-                ModelIO mio = new ModelIO();
-                String outputfilename = this.folder + "mapmodel.rdf";
-                mio.printModelToFile(model, outputfilename);
-            }
+            this.mio.saveModel(model, outputfilename);
         } catch (IOException ex) {
             System.err.println();
             LOG.log(Level.SEVERE, "Error while writting: {0}", ex.getMessage());
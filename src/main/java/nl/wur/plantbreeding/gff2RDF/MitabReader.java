@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class reads the protein-protein interactions of a PSI-MITAB file
+ * (intact.txt for example) using several threads.
+ *
+ * The file is read by large blocks of complete lines. The blocks are parsed
+ * concurrently, each of them giving the identifiers of the two proteins of
+ * its interactions, which are then added in order to an InteractionGraph.
+ * The number of blocks parsed at the same time is bounded, so that the
+ * memory used does not depend on the size of the file.
+ *
+ * The identifier of a protein is the text between the first and the second
+ * ':' of its field, before its first '|' (uniprotkb:P12345|... gives
+ * P12345). The two first lines of the file and the interactions whose
+ * protein is '-' are ignored.
+ *
+ * With a ProteinFilter, only the interactions involving at least one of its
+ * proteins are kept, the others being rejected from the bytes of the line.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class MitabReader {
+
+    /** Logger used for outputing log information. */
+    private static final Logger LOG = Logger.getLogger(
+            MitabReader.class.getName());
+    /** Size of the blocks of lines parsed independently. */
+    private static final int BLOCK_SIZE = 1 << 20;
+    /** Number of lines ignored at the beginning of the file. */
+    private static final int HEADER_LINES = 2;
+    /** Encoding of the files. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Number of threads parsing the blocks. */
+    private final int threads;
+    /** Number of lines ignored because they have no protein identifier. */
+    private int invalid = 0;
+    /** Proteins of the interactions to keep, null to keep them all. */
+    private ProteinFilter filter = null;
+    /** Number of interactions rejected by the filter. */
+    private final AtomicInteger filtered = new AtomicInteger();
+
+    /**
+     * Constructor using one thread per processor.
+     */
+    public MitabReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     * @param tmpthreads the number of threads parsing the blocks.
+     */
+    public MitabReader(final int tmpthreads) {
+        this.threads = Math.max(1, tmpthreads);
+    }
+
+    /**
+     * Set the proteins whose interactions are kept.
+     * @param tmpfilter the ProteinFilter of the proteins, null to keep all
+     * the interactions.
+     */
+    public final void setFilter(final ProteinFilter tmpfilter) {
+        this.filter = tmpfilter;
+    }
+
+    /**
+     * Read the interactions of a MITAB file and add them to a graph.
+     * The file may be compressed (see InputSource).
+     * @param inputfilename the path to the file.
+     * @param graph the InteractionGraph to which the interactions are added.
+     * @return the number of interactions read, duplicates included.
+     * @throws IOException when something goes wrong while reading the file.
+     */
+    public final int read(final String inputfilename,
+            final InteractionGraph graph) throws IOException {
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                this.threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "MITAB parser");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        final Deque<Future<String[]>> pending =
+                new ArrayDeque<Future<String[]>>();
+        final InputStream in = InputSource.open(inputfilename);
+        int read = 0;
+        try {
+            int skip = HEADER_LINES;
+            byte[] buf = new byte[BLOCK_SIZE];
+            int length = 0;
+            int n = 0;
+            while (n >= 0) {
+                n = in.read(buf, length, buf.length - length);
+                if (n > 0) {
+                    length = length + n;
+                    if (length < buf.length) {
+                        continue;
+                    }
+                }
+                // The buffer is full or the end of the file is reached
+                int cut = length;
+                if (n >= 0) {
+                    cut = lastLineEnd(buf, length);
+                    if (cut == 0) {
+                        // A line longer than the buffer
+                        buf = Arrays.copyOf(buf, buf.length * 2);
+                        continue;
+                    }
+                }
+                int start = 0;
+                while (skip > 0 && start < cut) {
+                    start = nextLine(buf, start, cut);
+                    skip--;
+                }
+                if (start < cut) {
+                    pending.addLast(pool.submit(new BlockParser(buf, start,
+                            cut, this.filter, this.filtered)));
+                }
+                final byte[] next = new byte[Math.max(BLOCK_SIZE,
+                        2 * (length - cut))];
+                System.arraycopy(buf, cut, next, 0, length - cut);
+                buf = next;
+                length = length - cut;
+                while (pending.size() > 2 * this.threads) {
+                    read = read + add(pending.removeFirst(), graph);
+                }
+            }
+            while (!pending.isEmpty()) {
+                read = read + add(pending.removeFirst(), graph);
+            }
+        } finally {
+            pool.shutdownNow();
+            in.close();
+        }
+        LOG.log(Level.FINE, "{0} lines without protein identifier ignored",
+                this.invalid);
+        if (this.filter != null) {
+            LOG.log(Level.FINE, "{0} interactions rejected by the filter",
+                    this.filtered.get());
+        }
+        return read;
+    }
+
+    /**
+     * Wait for the interactions of a block and add them to the graph.
+     * @param result the Future of the identifiers of the proteins of the
+     * interactions of the block, two per interaction.
+     * @param graph the InteractionGraph to which the interactions are added.
+     * @return the number of interactions of the block.
+     * @throws IOException if the parsing of the block was interrupted.
+     */
+    private int add(final Future<String[]> result,
+            final InteractionGraph graph) throws IOException {
+        final String[] proteins;
+        try {
+            proteins = result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+        int cnt = 0;
+        for (int i = 0; i + 1 < proteins.length; i = i + 2) {
+            if (proteins[i] == null) {
+                this.invalid++;
+            } else {
+                graph.add(proteins[i], proteins[i + 1]);
+                cnt++;
+            }
+        }
+        return cnt;
+    }
+
+    /**
+     * Return the index after the last end of line of a buffer.
+     * @param buf the buffer.
+     * @param length the number of bytes in the buffer.
+     * @return the index after the last '\n' or '\r', 0 if there is none.
+     */
+    private static int lastLineEnd(final byte[] buf, final int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buf[i] == '\n' || buf[i] == '\r') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return the index of the beginning of the next line.
+     * @param buf the buffer.
+     * @param from the index of the beginning of a line.
+     * @param to the index after the last byte to read.
+     * @return the index after the end of the line ("\r\n" included).
+     */
+    private static int nextLine(final byte[] buf, final int from,
+            final int to) {
+        int i = from;
+        while (i < to && buf[i] != '\n' && buf[i] != '\r') {
+            i++;
+        }
+        if (i < to && buf[i] == '\r' && i + 1 < to && buf[i + 1] == '\n') {
+            i++;
+        }
+        return Math.min(i + 1, to);
+    }
+
+    /**
+     * Parser of a block of lines, giving the identifiers of the proteins of
+     * each line: two per interaction, null ones for the lines without
+     * identifier.
+     */
+    private static class BlockParser implements Callable<String[]> {
+
+        /** Bytes of the block. */
+        private final byte[] buf;
+        /** Index of the first line of the block. */
+        private final int from;
+        /** Index after the last line of the block. */
+        private final int to;
+        /** Proteins of the interactions to keep, null to keep them all. */
+        private final ProteinFilter filter;
+        /** Counter of the interactions rejected by the filter. */
+        private final AtomicInteger filtered;
+
+        /**
+         * Constructor.
+         * @param tmpbuf the buffer holding the block.
+         * @param tmpfrom the index of the first line of the block.
+         * @param tmpto the index after the last line of the block.
+         * @param tmpfilter the ProteinFilter to apply, may be null.
+         * @param tmpfiltered the counter of the rejected interactions.
+         */
+        BlockParser(final byte[] tmpbuf, final int tmpfrom, final int tmpto,
+                final ProteinFilter tmpfilter,
+                final AtomicInteger tmpfiltered) {
+            this.buf = tmpbuf;
+            this.from = tmpfrom;
+            this.to = tmpto;
+            this.filter = tmpfilter;
+            this.filtered = tmpfiltered;
+        }
+
+        @Override
+        public String[] call() {
+            String[] proteins = new String[256];
+            int cnt = 0;
+            int start = this.from;
+            while (start < this.to) {
+                final int next = nextLine(this.buf, start, this.to);
+                int end = next;
+                while (end > start && this.buf[end - 1] <= ' ') {
+                    end--;
+                }
+                while (start < end && this.buf[start] <= ' ') {
+                    start++;
+                }
+                if (start < end) {
+                    if (cnt + 2 > proteins.length) {
+                        proteins = Arrays.copyOf(proteins, cnt * 2);
+                    }
+                    if (this.parseLine(start, end, proteins, cnt)) {
+                        cnt = cnt + 2;
+                    }
+                }
+                start = next;
+            }
+            return Arrays.copyOf(proteins, cnt);
+        }
+
+        /**
+         * Read the identifiers of the two proteins of a line.
+         * @param start the index of the first byte of the (trimmed) line.
+         * @param end the index after the last byte of the line.
+         * @param proteins the array in which to store the identifiers.
+         * @param pos the index of the first identifier in the array.
+         * @return false if the line is ignored, the identifiers are then
+         * not set.
+         */
+        private boolean parseLine(final int start, final int end,
+                final String[] proteins, final int pos) {
+            final int tab1 = this.indexOf('\t', start, end);
+            if (tab1 < 0) {
+                proteins[pos] = null;
+                proteins[pos + 1] = null;
+                return true;
+            }
+            int tab2 = this.indexOf('\t', tab1 + 1, end);
+            if (tab2 < 0) {
+                tab2 = end;
+            }
+            if (this.isDash(start, tab1) || this.isDash(tab1 + 1, tab2)) {
+                return false;
+            }
+            final long protein1 = this.findProtein(start, tab1);
+            final long protein2 = this.findProtein(tab1 + 1, tab2);
+            if (protein1 < 0 || protein2 < 0) {
+                proteins[pos] = null;
+                proteins[pos + 1] = null;
+                return true;
+            }
+            final boolean maybe1 = this.mightKeep(protein1);
+            final boolean maybe2 = this.mightKeep(protein2);
+            if (!maybe1 && !maybe2) {
+                this.filtered.incrementAndGet();
+                return false;
+            }
+            proteins[pos] = this.toString(protein1);
+            proteins[pos + 1] = this.toString(protein2);
+            if (this.filter != null
+                    && !(maybe1 && this.filter.contains(proteins[pos]))
+                    && !(maybe2 && this.filter.contains(proteins[pos + 1]))) {
+                this.filtered.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Return whether a protein may be kept by the filter.
+         * @param protein the limits of the identifier (see findProtein).
+         * @return false if the protein is not in the filter.
+         */
+        private boolean mightKeep(final long protein) {
+            return this.filter == null || this.filter.mightContain(this.buf,
+                    (int) (protein >>> 32), (int) protein);
+        }
+
+        /**
+         * Return the identifier at the given limits.
+         * @param protein the limits of the identifier (see findProtein).
+         * @return a String of the identifier.
+         */
+        private String toString(final long protein) {
+            final int start = (int) (protein >>> 32);
+            return new String(this.buf, start, (int) protein - start, UTF8);
+        }
+
+        /**
+         * Return whether a field is '-', white spaces aside.
+         * @param start the index of the first byte of the field.
+         * @param end the index after the last byte of the field.
+         * @return true if the field is '-'.
+         */
+        private boolean isDash(int start, int end) {
+            while (start < end && this.buf[start] <= ' ') {
+                start++;
+            }
+            while (end > start && this.buf[end - 1] <= ' ') {
+                end--;
+            }
+            return end - start == 1 && this.buf[start] == '-';
+        }
+
+        /**
+         * Find the identifier of the first protein given in a field, that
+         * is the text between the first and the second ':' of the field
+         * before its first '|'.
+         * @param start the index of the first byte of the field.
+         * @param end the index after the last byte of the field.
+         * @return the index of the first byte of the identifier in the 32
+         * high bits and the index after its last byte in the 32 low bits,
+         * -1 if there is no identifier.
+         */
+        private long findProtein(final int start, int end) {
+            final int pipe = this.indexOf('|', start, end);
+            if (pipe >= 0) {
+                end = pipe;
+            }
+            final int colon = this.indexOf(':', start, end);
+            if (colon < 0) {
+                return -1;
+            }
+            int stop = this.indexOf(':', colon + 1, end);
+            if (stop < 0) {
+                stop = end;
+            }
+            return ((long) (colon + 1) << 32) | stop;
+        }
+
+        /**
+         * Return the index of a character in a part of the block.
+         * @param c the character to look for.
+         * @param start the index of the first byte to look at.
+         * @param end the index after the last byte to look at.
+         * @return the index of the character or -1 if it is not found.
+         */
+        private int indexOf(final char c, final int start, final int end) {
+            for (int i = start; i < end; i++) {
+                if (this.buf[i] == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -30,12 +30,30 @@
 
 package nl.wur.plantbreeding.gff2RDF;
 
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.query.Dataset;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.tdb.TDB;
+import com.hp.hpl.jena.tdb.TDBFactory;
 import com.hp.hpl.jena.util.FileManager;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This gives IO support for Jena Model (semantic graphes).
@@ -43,6 +61,364 @@ import java.io.InputStream;
  */
 public class ModelIO {
 
+    /**
+     * Whether the models are streamed to their output file as they are
+     * filled instead of being kept in memory and written at the end.
+     */
+    private boolean streaming = false;
+
+    /**
+     * Folder of the TDB store in which the models are built, null to build
+     * them in memory.
+     */
+    private String tdbfolder = null;
+
+    /**
+     * Format in which the models are written at the end, one of FORMATS.
+     */
+    private String format = "rdfxml";
+
+    /** Whether the files written are compressed in gzip. */
+    private boolean compress = false;
+
+    /**
+     * Whether the information of each source is added to its own named
+     * graph, the models are then written in N-Quads.
+     */
+    private boolean namedgraphs = false;
+
+    /** Base of the URI of the named graphs of the sources. */
+    private static final String GRAPH_URI = new App().getUri() + "GRAPH/";
+    /** Formats in which the models can be written. */
+    private static final List<String> FORMATS = Arrays.asList("rdfxml",
+            "ntriples", "nquads", "turtle", "binary");
+
+    /** TDB datasets of the models built in a TDB store. */
+    private final Map<Model, Dataset> datasets =
+            new IdentityHashMap<Model, Dataset>();
+    /** Output of the models streamed to their output file. */
+    private final Map<Model, Writer> writers =
+            new IdentityHashMap<Model, Writer>();
+    /** Named graphs of the models, per URI of the graph. */
+    private final Map<Model, Map<String, Model>> graphs =
+            new IdentityHashMap<Model, Map<String, Model>>();
+
+    /**
+     * Set whether the models created are streamed in N-Triples to their
+     * output file as they are filled.
+     * @param tmpstreaming a boolean, true to stream the models.
+     */
+    public final void setStreaming(final boolean tmpstreaming) {
+        this.streaming = tmpstreaming;
+    }
+
+    /**
+     * Returns whether the models created are streamed to their output file.
+     * @return the boolean streaming.
+     */
+    public final boolean isStreaming() {
+        return this.streaming;
+    }
+
+    /**
+     * Set the store in which the models are built instead of the memory.
+     * The only store supported is a Jena TDB store, given as "tdb:" followed
+     * by the folder of the store.
+     * @param store a String describing the store, null to build the models
+     * in memory.
+     * @throws IllegalArgumentException if the store is not supported.
+     */
+    public final void setStore(final String store) {
+        if (store == null) {
+            this.tdbfolder = null;
+        } else if (store.startsWith("tdb:") && store.length() > 4) {
+            this.tdbfolder = store.substring(4);
+        } else {
+            throw new IllegalArgumentException("Unsupported store: '" + store
+                    + "', expected tdb:<folder>");
+        }
+    }
+
+    /**
+     * Set the format in which the models are written at the end: "rdfxml"
+     * (the default), "ntriples", "nquads" (which implies named graphs),
+     * "turtle" or "binary" (see BinaryGraph).
+     * The models streamed or built in a store can only be written in
+     * N-Triples or N-Quads (the binary format needs the whole model in
+     * memory), the ones with named graphs only in N-Quads. This is checked
+     * against the mode set before (see setStreaming, setStore and
+     * setNamedGraphs) so that another format is never written instead.
+     * @param tmpformat the name of the format.
+     * @throws IllegalArgumentException if the format is not supported or
+     * cannot be written in the mode set.
+     */
+    public final void setFormat(final String tmpformat) {
+        if (!FORMATS.contains(tmpformat)) {
+            throw new IllegalArgumentException("Unsupported format: '"
+                    + tmpformat + "', expected one of " + FORMATS);
+        }
+        final boolean quads = "nquads".equals(tmpformat);
+        if (!quads && !"ntriples".equals(tmpformat)
+                && (this.streaming || this.tdbfolder != null)) {
+            throw new IllegalArgumentException("The format " + tmpformat
+                    + " cannot be used when the models are streamed or built"
+                    + " in a store, expected ntriples or nquads");
+        }
+        if (!quads && this.namedgraphs) {
+            throw new IllegalArgumentException("The format " + tmpformat
+                    + " cannot be used with named graphs, expected nquads");
+        }
+        this.format = tmpformat;
+    }
+
+    /**
+     * Set whether the files written (except the binary ones) are compressed
+     * in gzip, on several threads (see ParallelGzipOutputStream).
+     * @param tmpcompress a boolean, true to compress the files.
+     */
+    public final void setCompress(final boolean tmpcompress) {
+        this.compress = tmpcompress;
+    }
+
+    /**
+     * Set whether the information of each source is added to its own named
+     * graph (see getNamedModel) and the models written in N-Quads.
+     * @param tmpnamedgraphs a boolean, true to use named graphs.
+     */
+    public final void setNamedGraphs(final boolean tmpnamedgraphs) {
+        this.namedgraphs = tmpnamedgraphs;
+    }
+
+    /**
+     * Returns whether the information of each source is added to its own
+     * named graph.
+     * @return the boolean namedgraphs.
+     */
+    public final boolean isNamedGraphs() {
+        return this.namedgraphs || "nquads".equals(this.format);
+    }
+
+    /**
+     * Return the extension of the files in which the models are exported in
+     * streaming mode or from a store.
+     * @return ".nq" with named graphs, ".nt" otherwise.
+     */
+    private String getExtension() {
+        return this.isNamedGraphs() ? ".nq" : ".nt";
+    }
+
+    /**
+     * Return the name of the format in which the models are exported in
+     * streaming mode or from a store.
+     * @return "N-Quads" with named graphs, "N-Triples" otherwise.
+     */
+    private String getFormat() {
+        return this.isNamedGraphs() ? "N-Quads" : "N-Triples";
+    }
+
+    /**
+     * Return the name of the file actually written for the given file.
+     * @param filename the name of the file without compression extension.
+     * @return the name of the file, ending with ".gz" if it is compressed.
+     */
+    private String getOutputName(final String filename) {
+        return this.compress ? filename + ".gz" : filename;
+    }
+
+    /**
+     * Open a file for writing, compressing it if asked (see setCompress).
+     * @param filename the name of the file without compression extension.
+     * @return the OutputStream to write into.
+     * @throws IOException when the file cannot be opened.
+     */
+    private OutputStream openOutput(final String filename)
+            throws IOException {
+        final OutputStream out = new FileOutputStream(
+                this.getOutputName(filename));
+        if (this.compress) {
+            return new ParallelGzipOutputStream(out);
+        }
+        return out;
+    }
+
+    /**
+     * Open a file for writing text in UTF-8, compressing it if asked.
+     * @param filename the name of the file without compression extension.
+     * @return the buffered Writer to write into.
+     * @throws IOException when the file cannot be opened.
+     */
+    private Writer openWriter(final String filename) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                this.openOutput(filename), "UTF-8"), 1 << 16);
+    }
+
+    /**
+     * Returns whether the models created are regular in-memory models, i.e.
+     * neither streamed to their output file nor built in a store.
+     * @return true if the models are kept in memory.
+     */
+    public final boolean isInMemory() {
+        return !this.streaming && this.tdbfolder == null;
+    }
+
+    /**
+     *
+     * Model creation
+     *
+     */
+
+    /**
+     * Create the model in which the information will be added.
+     * In streaming mode, the triples added to this model are directly
+     * written to the file basename.nt (basename.nq with named graphs) and the
+     * model is only filled once.
+     * With a TDB store, the model is built on disk in a sub-folder of the
+     * store named after basename, emptied first.
+     * Otherwise this is a regular in-memory model.
+     * @param basename the name of the output file without extension
+     * @return a Jena model
+     * @throws IOException when the output file cannot be opened
+     */
+    public final Model createModel(final String basename) throws IOException {
+        if (this.tdbfolder != null) {
+            final File location = new File(this.tdbfolder,
+                    basename.replaceAll("[^A-Za-z0-9._-]", "_"));
+            if (!location.exists() && !location.mkdirs()) {
+                throw new IOException("Cannot create the folder " + location);
+            }
+            System.out.println("Building model in the TDB store: " + location);
+            final Dataset dataset = TDBFactory.createDataset(
+                    location.getPath());
+            final Iterator<String> names = dataset.listNames();
+            while (names.hasNext()) {
+                dataset.getNamedModel(names.next()).removeAll();
+            }
+            final Model model = dataset.getDefaultModel();
+            model.removeAll();
+            this.datasets.put(model, dataset);
+            return model;
+        }
+        if (!this.streaming) {
+            return ModelFactory.createDefaultModel();
+        }
+        String filename = basename + this.getExtension();
+        System.out.println("Streaming model in " + this.getFormat() + " to: "
+                + this.getOutputName(filename));
+        Writer out = this.openWriter(filename);
+        final Model model = ModelFactory.createModelForGraph(
+                new StreamingGraph(out));
+        this.writers.put(model, out);
+        return model;
+    }
+
+    /**
+     * Return the model of the named graph of a source within a model
+     * created by createModel.
+     * Without named graphs, this is the model itself. Otherwise the named
+     * graph is created the first time it is asked for, its name is built
+     * from the name of the source and it is written with the model in
+     * N-Quads by saveModel.
+     * @param model the Jena model returned by createModel
+     * @param name the name of the source (its file for example)
+     * @return the Jena model in which to add the information of the source
+     */
+    public final Model getNamedModel(final Model model, final String name) {
+        if (!this.isNamedGraphs()) {
+            return model;
+        }
+        Map<String, Model> named = this.graphs.get(model);
+        if (named == null) {
+            named = new LinkedHashMap<String, Model>();
+            this.graphs.put(model, named);
+        }
+        final String graphname = GRAPH_URI
+                + name.replaceAll("[^A-Za-z0-9._-]", "_");
+        Model graph = named.get(graphname);
+        if (graph == null) {
+            if (this.datasets.containsKey(model)) {
+                graph = this.datasets.get(model).getNamedModel(graphname);
+            } else if (this.writers.containsKey(model)) {
+                graph = ModelFactory.createModelForGraph(new StreamingGraph(
+                        this.writers.get(model), graphname));
+            } else {
+                graph = ModelFactory.createDefaultModel();
+            }
+            named.put(graphname, graph);
+        }
+        return graph;
+    }
+
+    /**
+     * Return the number of triples of a model created by createModel,
+     * including the triples of its named graphs.
+     * @param model the Jena model returned by createModel
+     * @return the number of triples
+     */
+    public final long size(final Model model) {
+        long size = model.size();
+        final Map<String, Model> named = this.graphs.get(model);
+        if (named != null) {
+            for (Model graph : named.values()) {
+                size = size + graph.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Save a model created by createModel.
+     * In streaming mode the triples are already written, the output file is
+     * then only closed. With a TDB store, the store is synchronised on disk
+     * and the model exported to basename.nt. With named graphs, the model is
+     * exported in N-Quads to basename.nq. Otherwise the model is written, if
+     * it is not empty, in the format set by setFormat: RDF/XML to
+     * basename.rdf, N-Triples to basename.nt, Turtle to basename.ttl or the
+     * binary format to basename.rdfb.
+     * The files are compressed with the extension .gz if asked (see
+     * setCompress), except the binary ones.
+     * @param model the Jena model returned by createModel
+     * @param basename the name of the output file without extension
+     * @throws IOException when something goes wrong while outputing the model
+     */
+    public final void saveModel(final Model model, final String basename)
+            throws IOException {
+        final String filename = basename + this.getExtension();
+        if (this.datasets.containsKey(model)) {
+            final Dataset dataset = this.datasets.remove(model);
+            TDB.sync(dataset);
+            final long size = this.exportModel(model, filename);
+            System.out.println("Wrote " + size + " triples in "
+                    + this.getFormat() + " in: "
+                    + this.getOutputName(filename));
+            this.graphs.remove(model);
+            dataset.close();
+        } else if (this.streaming) {
+            final long size = this.size(model);
+            this.graphs.remove(model);
+            this.writers.remove(model);
+            model.close();
+            System.out.println("Wrote " + size + " triples in "
+                    + this.getFormat() + " in: "
+                    + this.getOutputName(filename));
+        } else if (this.isNamedGraphs()) {
+            final long size = this.exportModel(model, filename);
+            this.graphs.remove(model);
+            System.out.println("Wrote " + size + " triples in "
+                    + this.getFormat() + " in: "
+                    + this.getOutputName(filename));
+        } else if (!model.isEmpty()) {
+            if ("binary".equals(this.format)) {
+                this.printModelBinaryToFile(model, basename + ".rdfb");
+            } else if ("ntriples".equals(this.format)) {
+                this.printModelNtripleToFile(model, basename + ".nt");
+            } else if ("turtle".equals(this.format)) {
+                this.printModelTurtleToFile(model, basename + ".ttl");
+            } else {
+                this.printModelToFile(model, basename + ".rdf");
+            }
+        }
+    }
+
     /**
      *
      * RDF Reading
@@ -73,6 +449,17 @@ public class ModelIO {
     }
 
 
+    /**
+     * Open a file written in the binary format of BinaryGraph. The file is
+     * mapped in memory and queried as it is, it is not loaded.
+     * @param filename the name of the file to read
+     * @return a read-only Jena model
+     * @throws IOException when the file cannot be read
+     */
+    public final Model readBinary(final String filename) throws IOException {
+        return ModelFactory.createModelForGraph(new BinaryGraph(filename));
+    }
+
     /**
      *
      * Write Model (to stdout or file)
@@ -97,11 +484,48 @@ public class ModelIO {
      */
     public final void printModelToFile(final Model model, final String filename)
             throws IOException {
-        FileOutputStream out = new FileOutputStream(filename);
-        // now write the model in XML form to a file
-        model.write(out);
-        out.close();
-        System.out.println("Write model in RDF in: " + filename);
+        final OutputStream out = this.openOutput(filename);
+        try {
+            // now write the model in XML form to a file
+            model.write(out);
+        } finally {
+            out.close();
+        }
+        System.out.println("Write model in RDF in: "
+                + this.getOutputName(filename));
+    }
+
+    /**
+     * Write to a file with the given filename the Turtle representation of
+     * the model.
+     * @param model the Jena model to output
+     * @param filename the name of the file to print
+     * @throws IOException when something goes wrong while outputing the model
+     */
+    public final void printModelTurtleToFile(final Model model,
+            final String filename) throws IOException {
+        final OutputStream out = this.openOutput(filename);
+        try {
+            model.write(out, "TURTLE");
+        } finally {
+            out.close();
+        }
+        System.out.println("Write model in Turtle in: "
+                + this.getOutputName(filename));
+    }
+
+    /**
+     * Write to a file with the given filename the binary representation of
+     * the model (see BinaryGraph).
+     * @param model the Jena model to output
+     * @param filename the name of the file to write
+     * @throws IOException when something goes wrong while outputing the model
+     */
+    public final void printModelBinaryToFile(final Model model,
+            final String filename) throws IOException {
+        final long size = BinaryGraph.write(model.getGraph(), filename);
+        System.out.println("Write model (" + size + " triples) in binary RDF"
+                + " in: " + filename);
     }
 
     /**
@@ -113,11 +537,65 @@ public class ModelIO {
     public final void printModelNtripleToFile(final Model model,
             final String filename)
             throws IOException {
-        FileOutputStream out = new FileOutputStream(filename);
-        // now write the model in N3 form to a file
-        model.write(out, "N-TRIPLE");
-        out.close();
-        System.out.println("Write model in N# in: " + filename);
+        final OutputStream out = this.openOutput(filename);
+        try {
+            // now write the model in N3 form to a file
+            model.write(out, "N-TRIPLE");
+        } finally {
+            out.close();
+        }
+        System.out.println("Write model in N# in: "
+                + this.getOutputName(filename));
+    }
+
+    /**
+     * Write a model created by createModel to a file, one triple at a time
+     * as they are read from the model, so that a model stored on disk is
+     * exported without being loaded in memory. The triples of the model are
+     * written in N-Triples and those of its named graphs in N-Quads.
+     * @param model the Jena model returned by createModel
+     * @param filename the path to the file in which to write the model
+     * @return the number of triples written
+     * @throws IOException when something goes wrong while outputing the model
+     */
+    public final long exportModel(final Model model, final String filename)
+            throws IOException {
+        final Writer out = this.openWriter(filename);
+        long size = 0;
+        try {
+            size = copy(model, new StreamingGraph(out));
+            final Map<String, Model> named = this.graphs.get(model);
+            if (named != null) {
+                for (Map.Entry<String, Model> entry : named.entrySet()) {
+                    size = size + copy(entry.getValue(),
+                            new StreamingGraph(out, entry.getKey()));
+                }
+            }
+        } finally {
+            out.close();
+        }
+        return size;
+    }
+
+    /**
+     * Add all the triples of a model to a graph.
+     * @param model the Jena model to read
+     * @param graph the graph in which to add the triples
+     * @return the number of triples added
+     */
+    private static long copy(final Model model, final Graph graph) {
+        final ExtendedIterator<Triple> it = model.getGraph().find(Node.ANY,
+                Node.ANY, Node.ANY);
+        long size = 0;
+        try {
+            while (it.hasNext()) {
+                graph.add(it.next());
+                size = size + 1;
+            }
+        } finally {
+            it.close();
+        }
+        return size;
     }
 
     /**
@@ -30,9 +30,15 @@
 
 package nl.wur.plantbreeding.gff2RDF;
 
+import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.vocabulary.RDF;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.logging.Logger;
 import nl.wur.plantbreeding.gff2RDF.Arabidopsis.At_GeneProtein;
 import nl.wur.plantbreeding.gff2RDF.object.Gene;
@@ -50,6 +56,11 @@ public class ObjectToModel {
     private static final Logger LOG = Logger.getLogger(
             ObjectToModel.class.getName());
 
+    /** Default number of records whose statements are added at once. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** Number of records whose statements are added to the model at once. */
+    private static int batchsize = DEFAULT_BATCH_SIZE;
+
     /**
      * This is the based URI which will be used in the construction of the
      * model.
@@ -73,7 +84,252 @@ public class ObjectToModel {
      * This is the URI used by uniprot.
      */
     private final String proteinuri = "http://purl.uniprot.org/uniprot/";
-    
+    /** The uri used to specify the interactions between proteins. */
+    private final String protcoreuri = "http://purl.uniprot.org/core/";
+    /** The uri used to identify the interactions between proteins. */
+    private final String interactionuri = uri + "INTERACTION#";
+
+    /**
+     * The model for which the properties, types and resources below have
+     * been created. They are created again when another model is given.
+     */
+    private Model cachedmodel = null;
+    /** Type of the scaffolds. */
+    private Literal scaffoldtype;
+    /** Type of the genes. */
+    private Literal genetype;
+    /** Type of the markers. */
+    private Literal markertype;
+    /** Type of the positions. */
+    private Literal positiontype;
+    /** Type of the GO terms. */
+    private Literal gotype;
+    /** Property giving the name of a scaffold. */
+    private Property scaffoldname;
+    /** Property giving the name of a gene. */
+    private Property featurename;
+    /** Property giving the description of a gene. */
+    private Property genedescription;
+    /** Property giving the type of a gene. */
+    private Property featuretype;
+    /** Property giving the orientation of a gene. */
+    private Property orientation;
+    /** Property linking a gene to its position. */
+    private Property geneposition;
+    /** Property linking a gene to a GO term. */
+    private Property genego;
+    /** Property linking a gene to a protein. */
+    private Property geneprotein;
+    /** Property giving the start of a position. */
+    private Property start;
+    /** Property giving the stop of a position. */
+    private Property stop;
+    /** Property linking a position to its scaffold. */
+    private Property positionscaffold;
+    /** Property giving the identifier of a GO term. */
+    private Property goid;
+    /** Property giving the name of a marker. */
+    private Property markername;
+    /** Property giving the SGN identifier of a marker. */
+    private Property sgnid;
+    /** Property giving the genetic position of a marker. */
+    private Property mapposition;
+    /** Property giving the chromosome of a marker on a genetic map. */
+    private Property markerchromosome;
+    /** Property linking a marker to its physical position. */
+    private Property markerposition;
+    /** Property linking two interacting proteins. */
+    private Property interact;
+    /** Type of the interactions. */
+    private Resource interactiontype;
+    /** Property linking an interaction to one of its proteins. */
+    private Property participant;
+    /** Property giving the number of evidences of an interaction. */
+    private Property experiments;
+    /**
+     * Number of statements not added because they describe a scaffold or a
+     * GO term already in the model.
+     */
+    private long avoided = 0;
+    /** Statements waiting to be added to the model. */
+    private final ArrayList<Statement> pending = new ArrayList<Statement>();
+    /** Number of records whose statements are in pending. */
+    private int records = 0;
+    /** Scaffold resources already created, per chromosome name. */
+    private final HashMap<String, Resource> scaffolds =
+            new HashMap<String, Resource>();
+    /** GO term resources already created, per GO identifier. */
+    private final HashMap<String, Resource> goterms =
+            new HashMap<String, Resource>();
+
+    /**
+     * Create the properties and types of the vocabulary in the given model,
+     * unless they have already been created for this model.
+     * @param model the Jena Model in which information will be added.
+     */
+    private void useModel(final Model model) {
+        if (model == this.cachedmodel) {
+            return;
+        }
+        flush();
+        scaffoldtype = model.createLiteral(scaffolduri);
+        genetype = model.createLiteral(geneuri);
+        markertype = model.createLiteral(markeruri);
+        positiontype = model.createLiteral(positionuri);
+        gotype = model.createLiteral(gouri);
+        scaffoldname = model.createProperty(scaffolduri + "ScaffoldName");
+        featurename = model.createProperty(geneuri + "FeatureName");
+        genedescription = model.createProperty(geneuri + "Description");
+        featuretype = model.createProperty(geneuri + "FeatureType");
+        orientation = model.createProperty(geneuri + "Orientation");
+        geneposition = model.createProperty(geneuri + "Position");
+        genego = model.createProperty(geneuri + "Go");
+        geneprotein = model.createProperty(geneuri + "Protein");
+        start = model.createProperty(positionuri + "Start");
+        stop = model.createProperty(positionuri + "Stop");
+        positionscaffold = model.createProperty(positionuri + "Scaffold");
+        goid = model.createProperty(gouri + "GoID");
+        markername = model.createProperty(markeruri + "MarkerName");
+        sgnid = model.createProperty(markeruri + "SGN-ID");
+        mapposition = model.createProperty(markeruri + "mapPosition");
+        markerchromosome = model.createProperty(markeruri + "Chromosome");
+        markerposition = model.createProperty(markeruri + "Position");
+        interact = model.createProperty(protcoreuri + "Interact");
+        interactiontype = model.createResource(protcoreuri + "Interaction");
+        participant = model.createProperty(protcoreuri + "participant");
+        experiments = model.createProperty(protcoreuri + "experiments");
+        scaffolds.clear();
+        goterms.clear();
+        this.cachedmodel = model;
+    }
+
+    /**
+     * Set the number of records (genes, markers...) whose statements are
+     * collected and added to the model at once by all ObjectToModel.
+     * @param tmpbatchsize the number of records, 1 or less adds the
+     * statements of each record directly.
+     */
+    public static void setBatchSize(final int tmpbatchsize) {
+        batchsize = Math.max(1, tmpbatchsize);
+    }
+
+    /**
+     * Return the number of records whose statements are added at once.
+     * @return the size of the batches.
+     */
+    public static int getBatchSize() {
+        return batchsize;
+    }
+
+    /**
+     * Add a statement to the model, or keep it for the next flush when
+     * records are added by batches.
+     * @param subject the subject of the statement.
+     * @param predicate the predicate of the statement.
+     * @param object the object of the statement.
+     */
+    private void add(final Resource subject, final Property predicate,
+            final RDFNode object) {
+        if (batchsize > 1) {
+            pending.add(cachedmodel.createStatement(subject, predicate,
+                    object));
+        } else {
+            cachedmodel.add(subject, predicate, object);
+        }
+    }
+
+    /**
+     * Add a statement whose object is a plain literal to the model, or keep
+     * it for the next flush when records are added by batches.
+     * @param subject the subject of the statement.
+     * @param predicate the predicate of the statement.
+     * @param object the String of the literal.
+     */
+    private void add(final Resource subject, final Property predicate,
+            final String object) {
+        add(subject, predicate, cachedmodel.createLiteral(object));
+    }
+
+    /**
+     * Mark the end of a record and add the pending statements to the model
+     * once a batch is complete.
+     */
+    private void endRecord() {
+        records = records + 1;
+        if (records >= batchsize) {
+            flush();
+        }
+    }
+
+    /**
+     * Add to the model all the statements still pending.
+     * This has to be called once all the records have been given, before
+     * the model is used.
+     */
+    public final void flush() {
+        if (!pending.isEmpty()) {
+            cachedmodel.add(pending);
+            pending.clear();
+        }
+        records = 0;
+    }
+
+    /**
+     * Return the resource of the scaffold with the given name.
+     * The scaffold, its type and its name are only added to the model the
+     * first time it is seen, the statements would be the same afterwards.
+     * @param chromosome the name of the scaffold (may be null).
+     * @param model the Jena Model in which the scaffold is.
+     * @return the Resource of the scaffold.
+     */
+    private Resource addScaffold(final String chromosome, final Model model) {
+        Resource scaffold = scaffolds.get(chromosome);
+        if (scaffold != null) {
+            avoided = avoided + 1;
+            if (chromosome != null && !chromosome.isEmpty()) {
+                avoided = avoided + 1;
+            }
+            return scaffold;
+        }
+        scaffold = model.createResource(scaffolduri + chromosome);
+        add(scaffold, RDF.type, scaffoldtype);
+        if (chromosome != null && !chromosome.isEmpty()) {
+            add(scaffold, scaffoldname, chromosome);
+        }
+        scaffolds.put(chromosome, scaffold);
+        return scaffold;
+    }
+
+    /**
+     * Return the resource of the given GO term.
+     * The GO term, its type and its identifier are only added to the model
+     * the first time it is seen.
+     * @param go the GO identifier (for example GO:0005515).
+     * @param model the Jena Model in which the GO term is.
+     * @return the Resource of the GO term.
+     */
+    private Resource addGoTerm(final String go, final Model model) {
+        Resource goterm = goterms.get(go);
+        if (goterm != null) {
+            avoided = avoided + 2;
+            return goterm;
+        }
+        goterm = model.createResource(gouri + go.replace(":", "_"));
+        add(goterm, RDF.type, gotype);
+        add(goterm, goid, go);
+        goterms.put(go, goterm);
+        return goterm;
+    }
+
+    /**
+     * Return the number of statements describing a scaffold or a GO term
+     * which were not added again to the model since they were already in it.
+     * @return the number of redundant statements avoided.
+     */
+    public final long getAvoidedAdds() {
+        return this.avoided;
+    }
+
 
     /**
      * This method add the given Arabidopsis thaliana gene information to the
@@ -83,36 +339,26 @@ public class ObjectToModel {
      * @return a Jena Model with the gene information
      */
     public final Model addToModel(final Gene geneobj, final Model model) {
-        // Set the different URI that will be used
+        // Set the different properties that will be used
+        useModel(model);
 
         // Create the scaffold node, add type and name
-        Resource scaffold = model.createResource(scaffolduri
-                + geneobj.getChromosome());
-        scaffold.addProperty(RDF.type, scaffolduri);
-        if (geneobj.getChromosome() != null
-                && !geneobj.getChromosome().isEmpty()) {
-            scaffold.addProperty(model.createProperty(scaffolduri
-                    + "ScaffoldName"), geneobj.getChromosome());
-        }
+        Resource scaffold = addScaffold(geneobj.getChromosome(), model);
 
         // Create the gene node and add the type and basic information
         Resource gene = model.createResource(geneuri + geneobj.getLocus());
-        gene.addProperty(RDF.type, geneuri);
-        gene.addProperty(model.createProperty(geneuri + "FeatureName"),
-                geneobj.getLocus());
+        add(gene, RDF.type, genetype);
+        add(gene, featurename, geneobj.getLocus());
         if (geneobj.getDescription() != null
             && !geneobj.getDescription().isEmpty()) {
-            gene.addProperty(model.createProperty(geneuri + "Description"),
-                geneobj.getDescription());
+            add(gene, genedescription, geneobj.getDescription());
         }
         if (geneobj.getType() != null && !geneobj.getType().isEmpty()) {
-            gene.addProperty(model.createProperty(geneuri + "FeatureType"),
-                geneobj.getType());
+            add(gene, featuretype, geneobj.getType());
         }
         
         if (geneobj.getOrientation()!= null && !geneobj.getOrientation().isEmpty()) {
-            gene.addProperty(model.createProperty(geneuri + "Orientation"),
-                geneobj.getOrientation());
+            add(gene, orientation, geneobj.getOrientation());
         }
 
         // Create the position node, add type and start, stop and chr
@@ -120,26 +366,20 @@ public class ObjectToModel {
         if (geneobj.getChromosome() != null
                 && !geneobj.getChromosome().isEmpty()) {
             Resource position = model.createResource();
-            position.addProperty(RDF.type, positionuri);
-            position.addProperty(model.createProperty(positionuri + "Start"),
-                    Integer.toString(geneobj.getStart()));
-            position.addProperty(model.createProperty(positionuri + "Stop"),
-                    Integer.toString(geneobj.getStop()));
-            position.addProperty(model.createProperty(positionuri + "Scaffold"),
-                    scaffold);
-            gene.addProperty(model.createProperty(geneuri + "Position"),
-                    position);
+            add(position, RDF.type, positiontype);
+            add(position, start, Integer.toString(geneobj.getStart()));
+            add(position, stop, Integer.toString(geneobj.getStop()));
+            add(position, positionscaffold, scaffold);
+            add(gene, geneposition, position);
         }
 
         // Iterate over the GO term list and add them to the model
         for (String go : geneobj.getGoterms()) {
-            String goi = go.replace(":", "_");
-            Resource goterm = model.createResource(gouri + goi);
-            goterm.addProperty(RDF.type, gouri);
-            goterm.addProperty(model.createProperty(gouri + "GoID"), go);
-            gene.addProperty(model.createProperty(geneuri + "Go"), goterm);
+            Resource goterm = addGoTerm(go, model);
+            add(gene, genego, goterm);
         }
 
+        endRecord();
         return model;
     }
 
@@ -152,19 +392,21 @@ public class ObjectToModel {
      * @return the Jena Model with the information added
      */
     public final Model addToModel(final At_GeneProtein agp, final Model model) {
-        // Set the different URI that will be used
+        // Set the different properties that will be used
+        useModel(model);
 
         // Create the gene node and add the type
         Resource gene = model.createResource(geneuri + agp.getLocus());
-        gene.addProperty(RDF.type, geneuri);
+        add(gene, RDF.type, genetype);
 
         // Create the protein node
         final Resource protein = model.createResource(proteinuri
                 + agp.getProtein());
 
         // Link the gene node to the protein node
-        gene.addProperty(model.createProperty(geneuri + "Protein"), protein);
+        add(gene, geneprotein, protein);
 
+        endRecord();
         return model;
     }
 
@@ -178,52 +420,45 @@ public class ObjectToModel {
      * information about the marker.
      */
     public final Model addToModel(final Marker marker, final Model model) {
+        // Set the different properties that will be used
+        useModel(model);
+
         // Create the gene node and add the type
         Resource markerres = model.createResource(markeruri
                 + marker.getId());
-        markerres.addProperty(model.createProperty(markeruri
-                        + "MarkerName"), marker.getName());
-        markerres.addProperty(RDF.type, markeruri);
+        add(markerres, markername, marker.getName());
+        add(markerres, RDF.type, markertype);
 
         if (marker.getSgnid() != null && !marker.getSgnid().isEmpty()){
-            markerres.addProperty(model.createProperty(markeruri
-                           + "SGN-ID"), marker.getSgnid());
+            add(markerres, sgnid, marker.getSgnid());
         }
 
         // Create the scaffold node, add type and name
-        Resource scaffold = model.createResource(scaffolduri
-                + marker.getChromosome());
-        scaffold.addProperty(RDF.type, scaffolduri);
+        Resource scaffold = addScaffold(marker.getChromosome(), model);
 
         if (marker.getChromosome() != null
                 && !marker.getChromosome().isEmpty()) {
 
-            // Add the scaffold name
-            scaffold.addProperty(model.createProperty(scaffolduri
-                    + "ScaffoldName"), marker.getChromosome());
-
             // Create the position node to the physical and genetic map
             if (marker.isGenetic()) {
                 // Genetic location of the marker
-                markerres.addProperty(model.createProperty(markeruri
-                        + "mapPosition"), marker.getPosition());
-                markerres.addProperty(model.createProperty(markeruri
-                        + "Chromosome"), marker.getChromosome());
+                add(markerres, mapposition, marker.getPosition());
+                add(markerres, markerchromosome,
+                        marker.getChromosome());
             } else {
                 // Physical location of the marker
                 Resource position = model.createResource();
-                position.addProperty(RDF.type, positionuri);
-                position.addProperty(model.createProperty(positionuri
-                        + "Start"), Integer.toString(marker.getStart()));
-                position.addProperty(model.createProperty(positionuri
-                        + "Stop"), Integer.toString(marker.getStop()));
-                position.addProperty(model.createProperty(positionuri
-                        + "Scaffold"), scaffold);
-                markerres.addProperty(model.createProperty(markeruri
-                        + "Position"), position);
+                add(position, RDF.type, positiontype);
+                add(position, start,
+                        Integer.toString(marker.getStart()));
+                add(position, stop,
+                        Integer.toString(marker.getStop()));
+                add(position, positionscaffold, scaffold);
+                add(markerres, markerposition, position);
             }
         }
 
+        endRecord();
         return model;
     }
 
@@ -239,10 +474,11 @@ public class ObjectToModel {
         description = description.replaceAll("&#1", "");
         description = StringEscapeUtils.unescapeHtml(description);
         description = description.replaceAll("&", "");
+        useModel(model);
         Resource gene = model.createResource(geneuri + geneid);
-        gene.addProperty(RDF.type, geneuri);
-        gene.addProperty(model.createProperty(geneuri + "Description"),
-                description);
+        add(gene, RDF.type, genetype);
+        add(gene, genedescription, description);
+        endRecord();
         return model;
     }
 
@@ -254,11 +490,13 @@ public class ObjectToModel {
      * @return the Jena Model linking the gene to the protein.
      */
     public Model addProteinToModel(Model model, String geneid, String protid) {
+        useModel(model);
         final Resource gene = model.createResource(geneuri + geneid);
-        gene.addProperty(RDF.type, geneuri);
+        add(gene, RDF.type, genetype);
 
         final Resource protein = model.createResource(proteinuri + protid);
-        gene.addProperty(model.createProperty(geneuri + "Protein"), protein);
+        add(gene, geneprotein, protein);
+        endRecord();
         return model;
     }
 
@@ -271,11 +509,44 @@ public class ObjectToModel {
      */
     public final Model addProteinProteinInteractionToModel(final String protid1,
             String protid2, final Model model) {
-        String prot_uri = "http://purl.uniprot.org/core/";
+        useModel(model);
+        Resource prot1 = model.createResource(proteinuri + protid1);
+        Resource prot2 = model.createResource(proteinuri + protid2);
+        add(prot1, interact, prot2);
+        add(prot2, interact, prot1);
+        endRecord();
+        return model;
+    }
+
+    /**
+     * Add a protein-protein interaction to the model, as above, with the
+     * number of times it was found in the sources. The count is given by an
+     * interaction resource linked to the two proteins, whose URI is made of
+     * the two identifiers in lexicographic order.
+     * @param protid1 the identifier of the first protein.
+     * @param protid2 the identifier of the second protein.
+     * @param evidences the number of evidences of the interaction.
+     * @param model the Jena Model to which the interaction is added.
+     * @return the Jena Model with the interaction.
+     */
+    public final Model addProteinProteinInteractionToModel(
+            final String protid1, final String protid2, final int evidences,
+            final Model model) {
+        useModel(model);
         Resource prot1 = model.createResource(proteinuri + protid1);
         Resource prot2 = model.createResource(proteinuri + protid2);
-        prot1.addProperty(model.createProperty(prot_uri + "Interact"), prot2);
-        prot2.addProperty(model.createProperty(prot_uri + "Interact"), prot1);
+        add(prot1, interact, prot2);
+        add(prot2, interact, prot1);
+        // The same pair gets the same URI whatever the order of the proteins
+        final boolean ordered = protid1.compareTo(protid2) <= 0;
+        Resource interaction = model.createResource(interactionuri
+                + (ordered ? protid1 : protid2) + "_"
+                + (ordered ? protid2 : protid1));
+        add(interaction, RDF.type, interactiontype);
+        add(interaction, participant, prot1);
+        add(interaction, participant, prot2);
+        add(interaction, experiments, model.createTypedLiteral(evidences));
+        endRecord();
         return model;
     }
 }
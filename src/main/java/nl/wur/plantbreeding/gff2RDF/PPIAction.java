@@ -31,12 +31,7 @@
 package nl.wur.plantbreeding.gff2RDF;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Set;
@@ -69,6 +64,12 @@ public class PPIAction {
             ObjectToModel.class.getName());
     /** Folder in which the files are/will be stored. */
     private String folder = "PPI_files/";
+    /** ModelIO used to create and save the model. */
+    private ModelIO mio = new ModelIO();
+    /** Whether the number of evidences of the interactions is added. */
+    private boolean evidence = false;
+    /** Proteins of the interactions to keep, null to keep them all. */
+    private ProteinFilter filter = null;
 
     /**
      * Default constructor.
@@ -98,6 +99,39 @@ public class PPIAction {
         this.folder = tmpfolder;
     }
 
+    /**
+     * Set the ModelIO used to create and save the model.
+     * @param tmpmio the ModelIO to use.
+     */
+    public void setModelIO(ModelIO tmpmio) {
+        this.mio = tmpmio;
+    }
+
+    /**
+     * Set whether the number of times each interaction is found in the
+     * files is added to the model (see InteractionGraph).
+     * @param tmpevidence a boolean, true to add the number of evidences.
+     */
+    public void setEvidence(boolean tmpevidence) {
+        this.evidence = tmpevidence;
+    }
+
+    /**
+     * Only keep the interactions involving one of the proteins of the given
+     * file: a model of a previous run, for example the gene model of a
+     * species, or a list of UniProt accessions (see ProteinFilter).
+     * @param filename the path to the file, null to keep all the
+     * interactions.
+     * @throws IOException when something goes wrong while reading the file.
+     */
+    public void setFilter(String filename) throws IOException {
+        if (filename == null) {
+            this.filter = null;
+        } else {
+            this.filter = ProteinFilter.load(filename);
+        }
+    }
+
     /**
      * This function downloads the file of the ftp server of EBI.
      *
@@ -111,18 +145,18 @@ public class PPIAction {
      */
     public void download(boolean force) throws IOException {
         HashMap<String, String> urls = new HashMap<String, String>();
-        urls.put("ftp://ftp.ebi.ac.uk/pub/databases/intact/current/psimitab/intact.txt",
+        urls.put("https://ftp.ebi.ac.uk/pub/databases/intact/current/psimitab/intact.txt",
                 this.folder + "intact.txt");
-        urls.put("ftp://ftp.ebi.ac.uk/pub/databases/intact/current/psimitab/intact-micluster.txt",
+        urls.put("https://ftp.ebi.ac.uk/pub/databases/intact/current/psimitab/intact-micluster.txt",
                 this.folder + "intact-miclustered.txt");
 
+        DownloadManager manager = new DownloadManager(force);
         Set<String> urlset = urls.keySet();
-        int cnt = 0;
         for (Iterator<String> it = urlset.iterator(); it.hasNext();) {
             String key = it.next();
-            cnt = cnt + 1;
-            App.downaloadFile(key, urls.get(key), force);
+            manager.add(key, urls.get(key));
         }
+        manager.downloadAll();
         System.out.println();
     }
 
@@ -134,10 +168,34 @@ public class PPIAction {
      */
     public void main(boolean debug) {
 
-        Model model = ModelFactory.createDefaultModel();
+        String outputfilename = this.folder + "ppimodel";
+        Model model;
+        try {
+            model = this.mio.createModel(outputfilename);
+        } catch (IOException ex) {
+            System.err.println();
+            LOG.log(Level.SEVERE, "Error while opening: {0}", ex.getMessage());
+            if (debug) {
+                ex.printStackTrace(System.err);
+            }
+            return;
+        }
         try {
-            model = this.getModelFromGff(this.folder + "intact.txt", model);
-            model = this.getModelFromGff(this.folder + "intact-miclustered.txt", model);
+            if (this.mio.isNamedGraphs()) {
+                // Each file goes to its own named graph
+                this.getModelFromGff(this.folder + "intact.txt",
+                        this.mio.getNamedModel(model, "intact.txt"));
+                this.getModelFromGff(this.folder + "intact-miclustered.txt",
+                        this.mio.getNamedModel(model,
+                        "intact-miclustered.txt"));
+            } else {
+                // The interactions found in both files are added only once
+                final InteractionGraph graph = new InteractionGraph();
+                this.readInteractions(this.folder + "intact.txt", graph);
+                this.readInteractions(this.folder + "intact-miclustered.txt",
+                        graph);
+                model = graph.addToModel(model, this.evidence);
+            }
         } catch (IOException ex) {
             LOG.log(Level.SEVERE, null, ex);
             if (debug) {
@@ -145,13 +203,9 @@ public class PPIAction {
             }
         }
 
-        System.out.println("Model final: " + model.size());
+        System.out.println("Model final: " + this.mio.size(model));
         try {
-            if (!model.isEmpty()) {
-                ModelIO mio = new ModelIO();
-                String outputfilename = this.folder + "ppimodel.rdf";
-                mio.printModelToFile(model, outputfilename);
-            }
+            this.mio.saveModel(model, outputfilename);
         } catch (IOException ex) {
             System.err.println();
             LOG.log(Level.SEVERE, "Error while writting: {0}", ex.getMessage());
@@ -163,6 +217,9 @@ public class PPIAction {
 
     /**
      * Parse the tab delimited file and generate the model from it.
+     * The file is parsed on several threads (see MitabReader) and each
+     * interaction is added once to the model, whatever its direction and its
+     * number of evidences, at the end.
      * @param inputfilename the full path to the file.
      * @param model the Jena Model in which to add the info.
      * @return a Jena Model object containing the protein-protein interaction
@@ -176,40 +233,33 @@ public class PPIAction {
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
 
-        ObjectToModel obj2m = new ObjectToModel();
-
-        int cnt = 0;
-        int protcnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (cnt > 1) {
-                if (content[0].trim().equals("-")
-                        || content[1].trim().equals("-")) {
-                    continue;
-                }
-                String prot1 = content[0].split("\\|")[0].split(":")[1];
-                String prot2 = content[1].split("\\|")[0].split(":")[1];
-                // Add ppi to model
-                model = obj2m.addProteinProteinInteractionToModel(prot1, prot2,
-                        model);
-                protcnt = protcnt + 1;
-            }
-            cnt = cnt + 1;
-        }
-        in.close();
+        final InteractionGraph graph = new InteractionGraph();
+        this.readInteractions(inputfilename, graph);
+        model = graph.addToModel(model, this.evidence);
 
-        LOG.log(Level.FINE, cnt + " lines read");
-        LOG.log(Level.FINE, protcnt + " ppi found");
         LOG.log(Level.FINE, "Model has size: " + model.size());
 
         return model;
     }
+
+    /**
+     * Read the interactions of a MITAB file into an InteractionGraph, which
+     * keeps each of them once.
+     * @param inputfilename the full path to the file.
+     * @param graph the InteractionGraph to which the interactions are added.
+     * @throws IOException when something goes wrong while trying to read the
+     * file.
+     */
+    private void readInteractions(final String inputfilename,
+            final InteractionGraph graph) throws IOException {
+        final int before = graph.size();
+        final MitabReader reader = new MitabReader();
+        reader.setFilter(this.filter);
+        final int protcnt = reader.read(inputfilename, graph);
+
+        LOG.log(Level.FINE, protcnt + " ppi found in " + inputfilename);
+        LOG.log(Level.FINE, (graph.size() - before) + " new distinct ppi, "
+                + graph.size() + " between " + graph.getProteinCount()
+                + " proteins");
+    }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class compresses in gzip what is written to it, using several
+ * threads.
+ *
+ * The data is cut into blocks which are compressed concurrently, each of
+ * them into a complete gzip member, and written in order to the underlying
+ * stream. A sequence of gzip members is a valid gzip file, which any gzip
+ * reader (GZIPInputStream, gunzip, zcat...) decompresses as a whole.
+ * The number of blocks compressed at the same time is bounded, so that the
+ * memory used does not depend on the size of the data.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /** Size of the blocks compressed independently. */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /** Stream to which the compressed blocks are written. */
+    private final OutputStream out;
+    /** Threads compressing the blocks. */
+    private final ExecutorService pool;
+    /** Maximal number of blocks being compressed at the same time. */
+    private final int maxpending;
+    /** Blocks being compressed, in the order in which they are written. */
+    private final Deque<Future<byte[]>> pending =
+            new ArrayDeque<Future<byte[]>>();
+    /** Block currently filled. */
+    private byte[] block = new byte[BLOCK_SIZE];
+    /** Number of bytes in the block currently filled. */
+    private int length = 0;
+    /** Whether the stream is closed. */
+    private boolean closed = false;
+
+    /**
+     * Constructor using one thread per processor.
+     * @param tmpout the stream to which the compressed data is written.
+     */
+    public ParallelGzipOutputStream(final OutputStream tmpout) {
+        this(tmpout, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     * @param tmpout the stream to which the compressed data is written.
+     * @param threads the number of threads compressing the blocks.
+     */
+    public ParallelGzipOutputStream(final OutputStream tmpout,
+            final int threads) {
+        this.out = tmpout;
+        this.maxpending = 2 * Math.max(1, threads);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads),
+                new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "gzip compressor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    @Override
+    public final void write(final int b) throws IOException {
+        this.block[this.length++] = (byte) b;
+        if (this.length == BLOCK_SIZE) {
+            this.submit();
+        }
+    }
+
+    @Override
+    public final void write(final byte[] b, int off, int len)
+            throws IOException {
+        while (len > 0) {
+            final int n = Math.min(len, BLOCK_SIZE - this.length);
+            System.arraycopy(b, off, this.block, this.length, n);
+            this.length += n;
+            off += n;
+            len -= n;
+            if (this.length == BLOCK_SIZE) {
+                this.submit();
+            }
+        }
+    }
+
+    /**
+     * Write the blocks already compressed and flush the underlying stream.
+     * As with GZIPOutputStream, the data of the block currently filled is
+     * kept until the block is full or the stream closed, so that frequent
+     * flushes do not degrade the compression.
+     * @throws IOException When something goes wrong while writing.
+     */
+    @Override
+    public final void flush() throws IOException {
+        while (!this.pending.isEmpty() && this.pending.peekFirst().isDone()) {
+            this.writeNext();
+        }
+        this.out.flush();
+    }
+
+    /**
+     * Compress the remaining data, write it and close the underlying stream.
+     * @throws IOException When something goes wrong while writing.
+     */
+    @Override
+    public final void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            // Always end with a member, an empty stream is still valid gzip
+            this.submit();
+            while (!this.pending.isEmpty()) {
+                this.writeNext();
+            }
+            this.out.flush();
+        } finally {
+            this.pool.shutdownNow();
+            this.out.close();
+        }
+    }
+
+    /**
+     * Send the current block to be compressed and start a new one. If too
+     * many blocks are being compressed, wait for the first one and write it.
+     * @throws IOException When something goes wrong while writing.
+     */
+    private void submit() throws IOException {
+        final byte[] data = this.block;
+        final int size = this.length;
+        this.pending.addLast(this.pool.submit(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                final ByteArrayOutputStream bytes =
+                        new ByteArrayOutputStream(size / 3 + 64);
+                final GZIPOutputStream gzip = new GZIPOutputStream(bytes,
+                        1 << 16);
+                gzip.write(data, 0, size);
+                gzip.close();
+                return bytes.toByteArray();
+            }
+        }));
+        this.block = new byte[BLOCK_SIZE];
+        this.length = 0;
+        while (this.pending.size() > this.maxpending) {
+            this.writeNext();
+        }
+    }
+
+    /**
+     * Wait for the first block being compressed and write it.
+     * @throws IOException When something goes wrong while compressing or
+     * writing.
+     */
+    private void writeNext() throws IOException {
+        final Future<byte[]> first = this.pending.removeFirst();
+        try {
+            this.out.write(first.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Error while compressing", ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.wur.plantbreeding.gff2RDF.Potato;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class stores the conversion table from PGSC peptide identifier to PGSC
+ * gene identifier.
+ *
+ * The PGSC identifiers (such as PGSC0003DMP400012345) are made of a fixed
+ * prefix, the type of the feature (Gene, Transcript, CDS or Peptide) and a
+ * number, they are thus encoded into a long and stored in an open addressing
+ * table of longs instead of a HashMap of Strings. The identifiers which do
+ * not follow this pattern are kept in a HashMap.
+ *
+ * The table can be saved into a file which, when loaded, is mapped in memory
+ * and used as it is, so that the conversion file does not need to be parsed
+ * again on the next runs.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class Po_ConversionTable {
+
+    /** Number written at the beginning of the files of the table. */
+    private static final long MAGIC = 0x5047534354424c31L;
+    /** Size in bytes of the header of the files of the table. */
+    private static final int HEADER = 6 * 8;
+    /** Type of the features of the PGSC identifiers. */
+    private static final String TYPES = "GTCP";
+    /** Number of possible feature numbers (nine digits). */
+    private static final long NUMBERS = 1000000000L;
+    /** Value of the empty slots of the table. */
+    private static final long EMPTY = 0;
+
+    /** Keys of the open addressing table. */
+    private LongBuffer keys;
+    /** Values of the open addressing table. */
+    private LongBuffer values;
+    /** Number of entries in the open addressing table. */
+    private int count = 0;
+    /** Entries whose key or value is not a PGSC identifier. */
+    private final Map<String, String> others = new HashMap<String, String>();
+
+    /**
+     * Default constructor, creates an empty table.
+     */
+    public Po_ConversionTable() {
+        this.keys = LongBuffer.wrap(new long[1 << 12]);
+        this.values = LongBuffer.wrap(new long[1 << 12]);
+    }
+
+    /**
+     * Constructor of a table read from a file.
+     * @param tmpkeys the keys of the open addressing table.
+     * @param tmpvalues the values of the open addressing table.
+     * @param tmpcount the number of entries in the open addressing table.
+     */
+    private Po_ConversionTable(final LongBuffer tmpkeys,
+            final LongBuffer tmpvalues, final int tmpcount) {
+        this.keys = tmpkeys;
+        this.values = tmpvalues;
+        this.count = tmpcount;
+    }
+
+    /**
+     * Associate a gene identifier to a peptide identifier.
+     * @param peptideid the PGSC peptide identifier.
+     * @param geneid the PGSC gene identifier.
+     */
+    public final void put(final String peptideid, final String geneid) {
+        final long key = encode(peptideid);
+        final long value = encode(geneid);
+        if (this.keys.isReadOnly()) {
+            // The table is mapped from a file, copy it before changing it
+            this.resize(this.keys.capacity());
+        }
+        if (key == EMPTY || value == EMPTY) {
+            this.others.put(peptideid, geneid);
+            if (key != EMPTY) {
+                this.remove(key);
+            }
+            return;
+        }
+        if (!this.others.isEmpty()) {
+            this.others.remove(peptideid);
+        }
+        if ((this.count + 1) * 2 > this.keys.capacity()) {
+            this.resize(this.keys.capacity() * 2);
+        }
+        if (insert(this.keys, this.values, key, value)) {
+            this.count++;
+        }
+    }
+
+    /**
+     * Return the gene identifier associated to a peptide identifier.
+     * @param peptideid the PGSC peptide identifier.
+     * @return the PGSC gene identifier or null if the peptide is unknown.
+     */
+    public final String get(final String peptideid) {
+        if (!this.others.isEmpty()) {
+            final String geneid = this.others.get(peptideid);
+            if (geneid != null) {
+                return geneid;
+            }
+        }
+        final long key = encode(peptideid);
+        if (key == EMPTY) {
+            return null;
+        }
+        final int slot = this.find(key);
+        if (slot < 0) {
+            return null;
+        }
+        return decode(this.values.get(slot));
+    }
+
+    /**
+     * Return the number of peptides in the table.
+     * @return the number of entries.
+     */
+    public final int size() {
+        return this.count + this.others.size();
+    }
+
+    /**
+     * Encode a PGSC identifier (PGSC, four digits, DM, the type of the
+     * feature and nine digits) into a strictly positive long.
+     * @param id the identifier.
+     * @return the code of the identifier or EMPTY if it is not a PGSC
+     * identifier.
+     */
+    static long encode(final String id) {
+        if (id == null || id.length() != 20 || !id.startsWith("PGSC")
+                || id.charAt(8) != 'D' || id.charAt(9) != 'M') {
+            return EMPTY;
+        }
+        final int type = TYPES.indexOf(id.charAt(10));
+        if (type < 0) {
+            return EMPTY;
+        }
+        final long release = digits(id, 4, 8);
+        final long number = digits(id, 11, 20);
+        if (release < 0 || number < 0) {
+            return EMPTY;
+        }
+        return (release * TYPES.length() + type) * NUMBERS + number + 1;
+    }
+
+    /**
+     * Decode a PGSC identifier encoded by encode().
+     * @param code the code of the identifier.
+     * @return the identifier.
+     */
+    static String decode(final long code) {
+        final long number = (code - 1) % NUMBERS;
+        final long rest = (code - 1) / NUMBERS;
+        final char[] id = "PGSC0000DMX000000000".toCharArray();
+        id[10] = TYPES.charAt((int) (rest % TYPES.length()));
+        long release = rest / TYPES.length();
+        for (int i = 7; i >= 4; i--) {
+            id[i] = (char) ('0' + release % 10);
+            release = release / 10;
+        }
+        long tmp = number;
+        for (int i = 19; i >= 11; i--) {
+            id[i] = (char) ('0' + tmp % 10);
+            tmp = tmp / 10;
+        }
+        return new String(id);
+    }
+
+    /**
+     * Parse the digits of a part of an identifier.
+     * @param id the identifier.
+     * @param from the index of the first digit.
+     * @param to the index after the last digit.
+     * @return the number or -1 if a character is not a digit.
+     */
+    private static long digits(final String id, final int from,
+            final int to) {
+        long number = 0;
+        for (int i = from; i < to; i++) {
+            final char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    /**
+     * Spread the bits of a code over a table.
+     * @param code the encoded identifier.
+     * @param mask the size of the table minus one.
+     * @return the slot at which the code should be stored.
+     */
+    private static int slot(final long code, final int mask) {
+        long h = code * 0x9E3779B97F4A7C15L;
+        h = h ^ (h >>> 32);
+        return (int) h & mask;
+    }
+
+    /**
+     * Return the slot of a key in the table.
+     * @param key the encoded peptide identifier.
+     * @return the slot of the key or -1 if it is not in the table.
+     */
+    private int find(final long key) {
+        final int mask = this.keys.capacity() - 1;
+        int i = slot(key, mask);
+        long k;
+        while ((k = this.keys.get(i)) != EMPTY) {
+            if (k == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Insert or replace an entry in a table.
+     * @param tmpkeys the keys of the table.
+     * @param tmpvalues the values of the table.
+     * @param key the encoded peptide identifier.
+     * @param value the encoded gene identifier.
+     * @return true if the key was not already in the table.
+     */
+    private static boolean insert(final LongBuffer tmpkeys,
+            final LongBuffer tmpvalues, final long key, final long value) {
+        final int mask = tmpkeys.capacity() - 1;
+        int i = slot(key, mask);
+        long k;
+        while ((k = tmpkeys.get(i)) != EMPTY) {
+            if (k == key) {
+                tmpvalues.put(i, value);
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        tmpkeys.put(i, key);
+        tmpvalues.put(i, value);
+        return true;
+    }
+
+    /**
+     * Remove an entry from the table, shifting back the entries which
+     * follow it so that they can still be found.
+     * @param key the encoded peptide identifier.
+     */
+    private void remove(final long key) {
+        int i = this.find(key);
+        if (i < 0) {
+            return;
+        }
+        final int mask = this.keys.capacity() - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            final long k = this.keys.get(j);
+            if (k == EMPTY) {
+                break;
+            }
+            final int home = slot(k, mask);
+            // Move the entry if its home slot is not between i and j
+            if ((i <= j) ? (home <= i || home > j) : (home <= i && home > j)) {
+                this.keys.put(i, k);
+                this.values.put(i, this.values.get(j));
+                i = j;
+            }
+        }
+        this.keys.put(i, EMPTY);
+        this.values.put(i, EMPTY);
+        this.count--;
+    }
+
+    /**
+     * Copy the table into a new table of the given size.
+     * @param size the number of slots of the new table.
+     */
+    private void resize(final int size) {
+        final LongBuffer tmpkeys = LongBuffer.wrap(new long[size]);
+        final LongBuffer tmpvalues = LongBuffer.wrap(new long[size]);
+        for (int i = 0; i < this.keys.capacity(); i++) {
+            final long key = this.keys.get(i);
+            if (key != EMPTY) {
+                insert(tmpkeys, tmpvalues, key, this.values.get(i));
+            }
+        }
+        this.keys = tmpkeys;
+        this.values = tmpvalues;
+    }
+
+    /**
+     * Save the table into a file, recording the size and the modification
+     * date of the file it was parsed from.
+     * @param file the file in which to save the table.
+     * @param source the file from which the table was parsed.
+     * @throws IOException When something goes wrong while writing the file.
+     */
+    public final void save(final File file, final File source)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(this.others.size());
+        for (Map.Entry<String, String> entry : this.others.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+        out.close();
+
+        final int capacity = this.keys.capacity();
+        final File tmp = new File(file.getPath() + ".tmp");
+        final RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            final FileChannel fc = raf.getChannel();
+            final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putLong(MAGIC).putLong(source.length())
+                    .putLong(source.lastModified()).putLong(capacity)
+                    .putLong(this.count).putLong(bytes.size());
+            for (LongBuffer table : new LongBuffer[]{this.keys, this.values}) {
+                for (int i = 0; i < capacity; i++) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            fc.write(buffer);
+                        }
+                        buffer.clear();
+                    }
+                    buffer.putLong(table.get(i));
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                fc.write(buffer);
+            }
+            fc.write(ByteBuffer.wrap(bytes.toByteArray()));
+            fc.force(true);
+        } finally {
+            raf.close();
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace " + file);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * Load a table saved into a file by save(). The table is mapped in
+     * memory and not read.
+     * @param file the file in which the table was saved.
+     * @param source the file from which the table should be parsed.
+     * @return the table or null if the file does not exist or was saved from
+     * a different version of the source file.
+     * @throws IOException When something goes wrong while reading the file.
+     */
+    public static Po_ConversionTable load(final File file, final File source)
+            throws IOException {
+        if (!file.exists() || file.length() < HEADER) {
+            return null;
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = raf.getChannel().map(
+                    FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            if (buffer.getLong(0) != MAGIC
+                    || buffer.getLong(8) != source.length()
+                    || buffer.getLong(16) != source.lastModified()) {
+                return null;
+            }
+            final int capacity = (int) buffer.getLong(24);
+            final int tmpcount = (int) buffer.getLong(32);
+            final int extra = (int) buffer.getLong(40);
+            final long tables = HEADER + 16L * capacity;
+            if (raf.length() != tables + extra) {
+                return null;
+            }
+            buffer.position(HEADER);
+            buffer.limit(HEADER + 8 * capacity);
+            final LongBuffer tmpkeys = buffer.slice().asLongBuffer();
+            buffer.limit((int) tables);
+            buffer.position(HEADER + 8 * capacity);
+            final LongBuffer tmpvalues = buffer.slice().asLongBuffer();
+            final Po_ConversionTable table = new Po_ConversionTable(tmpkeys,
+                    tmpvalues, tmpcount);
+
+            buffer.limit((int) (tables + extra));
+            buffer.position((int) tables);
+            final byte[] bytes = new byte[extra];
+            buffer.get(bytes);
+            final DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(bytes));
+            final int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                table.others.put(in.readUTF(), in.readUTF());
+            }
+            return table;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -31,13 +31,11 @@
 package nl.wur.plantbreeding.gff2RDF.Potato;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 
 /**
@@ -73,21 +71,16 @@ public class Po_ParseGeneDescription {
 
         int cnt = 0;
         int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
         String geneid = null;
         String description = null;
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 1 && cnt > 1) {
-                geneid = content[0];
-                description = content[1];
+        while (br.next()) {
+            content.reset(br, true);
+            if (content.size() > 1 && cnt > 1) {
+                geneid = content.get(0);
+                description = content.get(1);
                 // Add gene to model
                 model = obj2m.addGeneDescriptionToModel(geneid, description,
                         model);
@@ -95,7 +88,7 @@ public class Po_ParseGeneDescription {
             }
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
 
         if (geneid != null) {
             // add gene to model here
@@ -103,6 +96,9 @@ public class Po_ParseGeneDescription {
                     model);
         }
 
+        // Add the statements still pending to the model
+        obj2m.flush();
+
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, genecnt + " genes found");
         LOG.log(Level.FINE, "Model has size: " + model.size());
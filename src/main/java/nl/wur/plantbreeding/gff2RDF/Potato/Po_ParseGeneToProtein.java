@@ -4,14 +4,13 @@
  */
 package nl.wur.plantbreeding.gff2RDF.Potato;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.InputSource;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 
 /**
  * This class parse the conversion table from PGSC GeneID to PGSC Peptide ID,
@@ -38,42 +37,49 @@ public class Po_ParseGeneToProtein {
      * "PGSC_DM_v3.4_g2t2c2p2func.txt" to extract a conversion table from PGSC
      * peptide identifier to PGSC gene identifier.
      *
+     * The table is saved next to the input file (with the extension ".map")
+     * and re-used on the next runs as long as the input file does not change.
+     *
      * @param inputfilename a String of the location of the input file to read.
-     * @return a HashMap of String:String containing as key PGSC peptide
+     * @return a Po_ConversionTable containing as key PGSC peptide
      * identifier and for value PGSC gene identifier.
      * @throws IOException This is throws when something goes wrong while
      * reading the file.
      */
-    public HashMap<String, String> parseGeneToProtein(String inputfilename)
+    public Po_ConversionTable parseGeneToProtein(String inputfilename)
             throws IOException {
-        System.out.println("Parsing: " + inputfilename);
+        final File source = new File(InputSource.resolve(inputfilename));
+        final File cache = new File(inputfilename + ".map");
+        Po_ConversionTable conversion_table =
+                Po_ConversionTable.load(cache, source);
+        if (conversion_table != null) {
+            System.out.println("Using the conversion table: " + cache);
+            LOG.log(Level.FINE, "Conversion found : " + conversion_table.size());
+            return conversion_table;
+        }
 
+        System.out.println("Parsing: " + inputfilename);
 
-        HashMap<String, String> conversion_table = new HashMap<String, String>();
+        conversion_table = new Po_ConversionTable();
 
         int cnt = 0;
         int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
         String geneid = null;
         String peptideid = null;
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 1 && cnt > 1) {
-                geneid = content[0];
-                peptideid = content[3];
+        while (br.next()) {
+            content.reset(br, true);
+            if (content.size() > 1 && cnt > 1) {
+                geneid = content.get(0);
+                peptideid = content.get(3);
                 conversion_table.put(peptideid, geneid);
                 genecnt = genecnt + 1;
             }
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
 
         if (geneid != null && peptideid != null) {
             conversion_table.put(geneid, peptideid);
@@ -83,6 +89,13 @@ public class Po_ParseGeneToProtein {
         LOG.log(Level.FINE, genecnt + " genes found");
         LOG.log(Level.FINE, "Conversion found : " + conversion_table.size());
 
+        try {
+            conversion_table.save(cache, source);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Cannot save the conversion table in {0}: {1}",
+                    new Object[]{cache, ex.getMessage()});
+        }
+
         return conversion_table;
     }
 }
@@ -5,14 +5,11 @@
 package nl.wur.plantbreeding.gff2RDF.Potato;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 import nl.wur.plantbreeding.gff2RDF.object.Gene;
 
@@ -47,7 +44,7 @@ public class Po_ParseGo {
      * is added to the model.
      *
      * @param inputfilename a String giving the name of the input file to read.
-     * @param convertion_table a HashMap of String:String having PGSC peptide
+     * @param convertion_table a Po_ConversionTable having PGSC peptide
      * identifier as key and PGSC gene identifier as value.
      * @param model a Jena Model in which the gene, GO association should be
      * added
@@ -56,7 +53,7 @@ public class Po_ParseGo {
      * the input file.
      */
     public Model addGeneGoToModel(String inputfilename,
-            HashMap<String, String> convertion_table, Model model)
+            Po_ConversionTable convertion_table, Model model)
             throws IOException {
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
@@ -65,30 +62,27 @@ public class Po_ParseGo {
 
         int cnt = 0;
         int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
+        final FieldCursor goes = new FieldCursor(',');
         String peptideid = null;
         String goterms = null;
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 1 && cnt > 1) {
-                peptideid = content[0];
-                goterms = content[1];
+        while (br.next()) {
+            content.reset(br, true);
+            if (content.size() > 1 && cnt > 1) {
+                peptideid = content.get(0);
+                goterms = content.get(1);
                 String geneid = convertion_table.get(peptideid);
                 if (geneid == null) {
                     continue;
                 }
                 Gene gene = new Gene();
                 gene.setLocus(geneid);
-                for (String go : goterms.split(",")) {
-                    if (!go.trim().isEmpty()) {
-                        gene.addGoTerm(go);
+                goes.reset(br, content.start(1), content.end(1), false);
+                for (int i = 0; i < goes.size(); i++) {
+                    if (!goes.getTrimmed(i).isEmpty()) {
+                        gene.addGoTerm(goes.get(i));
                     }
                 }
                 model = obj2m.addToModel(gene, model);
@@ -96,7 +90,7 @@ public class Po_ParseGo {
             }
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
 
         if (peptideid != null && goterms != null) {
             String geneid = convertion_table.get(peptideid);
@@ -111,8 +105,13 @@ public class Po_ParseGo {
             genecnt = genecnt + 1;
         }
 
+        // Add the statements still pending to the model
+        obj2m.flush();
+
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, genecnt + " genes found");
+        LOG.log(Level.FINE, obj2m.getAvoidedAdds()
+                + " redundant statements avoided");
         LOG.log(Level.FINE, "Model has size: " + model.size());
 
         return model;
@@ -5,13 +5,11 @@
 package nl.wur.plantbreeding.gff2RDF.Potato;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 import nl.wur.plantbreeding.gff2RDF.object.Gene;
 
@@ -44,25 +42,20 @@ public class Po_ParseProtein {
 
         int cnt = 0;
         int genecnt = 0;
-        String strline = "";
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
         String geneid = null;
         String proteineid = null;
         //Read File Line By Line
-        while ((strline = br.readLine()) != null) {
+        while (br.next()) {
             if (cnt == 0) {
                 cnt = cnt + 1;
                 continue;
             }
-            strline = strline.trim();
-            String[] content = strline.split("\t");
-            if (content.length > 1 && cnt > 1) {
-                geneid = content[0];
-                proteineid = content[3].split("UniRef100_")[1];
+            content.reset(br, true);
+            if (content.size() > 1 && cnt > 1) {
+                geneid = content.get(0);
+                proteineid = content.attribute(3, "UniRef100_");
                 if (geneid == null) {
                     continue;
                 }
@@ -75,7 +68,7 @@ public class Po_ParseProtein {
             }
             cnt = cnt + 1;
         }
-        in.close();
+        br.close();
 
         if (geneid != null && proteineid != null) {
             if (!proteineid.startsWith("UP")) {
@@ -84,6 +77,9 @@ public class Po_ParseProtein {
             }
         }
 
+        // Add the statements still pending to the model
+        obj2m.flush();
+
         LOG.log(Level.FINE, cnt + " lines read");
         LOG.log(Level.FINE, genecnt + " genes found");
         LOG.log(Level.FINE, "Model has size: " + model.size());
@@ -31,10 +31,10 @@
 package nl.wur.plantbreeding.gff2RDF;
 
 import nl.wur.plantbreeding.gff2RDF.Potato.Po_ParseProtein;
+import nl.wur.plantbreeding.gff2RDF.Potato.Po_ConversionTable;
 import nl.wur.plantbreeding.gff2RDF.Potato.Po_ParseGo;
 import nl.wur.plantbreeding.gff2RDF.Potato.Po_ParseGeneToProtein;
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -63,6 +63,10 @@ public class PotatoAction {
             PotatoAction.class.getName());
     /** Folder in which the files are/will be stored. */
     private String folder = "Potato_files/";
+    /** ModelIO used to create and save the model. */
+    private ModelIO mio = new ModelIO();
+    /** Whether the sources whose files did not change are read from cache. */
+    private boolean incremental = false;
 
     /**
      * Default constructor.
@@ -92,6 +96,23 @@ public class PotatoAction {
         this.folder = tmpfolder;
     }
 
+    /**
+     * Set the ModelIO used to create and save the model.
+     * @param tmpmio the ModelIO to use.
+     */
+    public void setModelIO(ModelIO tmpmio) {
+        this.mio = tmpmio;
+    }
+
+    /**
+     * Set whether the sources whose files did not change since the last run
+     * are read from the cache of the folder instead of being parsed again.
+     * @param tmpincremental a boolean, true to use the cache.
+     */
+    public void setIncremental(boolean tmpincremental) {
+        this.incremental = tmpincremental;
+    }
+
     /**
      * This function downloads the file of the Potato genome annotation from
      * the PGSC.
@@ -120,13 +141,13 @@ public class PotatoAction {
        urls.put("ftp://test2",
                 this.folder + "PGSC_gene_UniRef.txt");
 
+        DownloadManager manager = new DownloadManager(force);
         Set<String> urlset = urls.keySet();
-        int cnt = 0;
         for (Iterator<String> it = urlset.iterator(); it.hasNext();) {
             String key = it.next();
-            cnt = cnt + 1;
-            App.downaloadFile(key, urls.get(key), force);
+            manager.add(key, urls.get(key));
         }
+        manager.downloadAll();
         System.out.println();
     }
 
@@ -139,14 +160,16 @@ public class PotatoAction {
         String[] files = {"PGSC_DM_v3.4_gene.gff.zip",
             "PGSC_DM_v3.4_gene_func.txt.zip", "Solanum_phureja.txt.zip",
             "PGSC_DM_v3.4_g2t2c2p2func.txt.zip"};
+        ZipExtractor extractor = new ZipExtractor(this.folder, force);
         for (String file : files) {
-            try {
-                App.extractZipFile(this.folder + file, this.folder, force);
-            } catch (IOException ex) {
-                System.err.println();
-                LOG.log(Level.SEVERE, "Unzip Error in " + this.folder + file
-                        + ": \"{0}\"", ex.getMessage());
-            }
+            extractor.add(this.folder + file);
+        }
+        try {
+            extractor.extractAll();
+        } catch (IOException ex) {
+            System.err.println();
+            LOG.log(Level.SEVERE, "Unzip Error in " + this.folder
+                    + ": \"{0}\"", ex.getMessage());
         }
         System.out.println();
     }
@@ -155,81 +178,87 @@ public class PotatoAction {
      * This function reads the downloaded files and conver their content into
      * an RDF model which is stored in a Jena Model object.
      *
+     * The files are independent from each other, they are parsed at the same
+     * time (see SourceScheduler) unless the model is streamed.
+     *
      * @param debug boolean to print the stack trace of the exceptions catched.
      */
-    public void main(boolean debug) {
-        Model model = ModelFactory.createDefaultModel();
-        String inputfilename = "";
-
+    public void main(final boolean debug) {
+        String outputfilename = this.folder + "genemodel";
+        Model model;
         try {
-            // GFF file containing the gene information
-            inputfilename = this.folder + "PGSC_DM_v3.4_gene.gff";
-            Po_ParseGeneInfo parser = new Po_ParseGeneInfo();
-            model = parser.getModelFromGff(inputfilename, model);
+            model = this.mio.createModel(outputfilename);
         } catch (IOException ex) {
             System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
+            LOG.log(Level.SEVERE, "Error while opening: {0}", ex.getMessage());
             if (debug) {
                 ex.printStackTrace(System.err);
             }
+            return;
         }
 
-        try {
-            // GFF file containing the gene information
-            inputfilename = this.folder + "PGSC_DM_v3.4_gene_func.txt";
-            Po_ParseGeneDescription parser = new Po_ParseGeneDescription();
-            model = parser.addGeneDescriptionToModel(inputfilename, model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
-            }
+        SourceScheduler scheduler = new SourceScheduler();
+        scheduler.setModelIO(this.mio);
+        scheduler.setParallel(this.mio.isInMemory());
+        if (this.incremental) {
+            scheduler.setCache(new BuildCache(this.folder + "cache"));
         }
 
-        try {
-            // GFF file containing the PGSC gene to PGSC peptide information
-            inputfilename = this.folder + "PGSC_DM_v3.4_g2t2c2p2func.txt";
-            Po_ParseGeneToProtein parser = new Po_ParseGeneToProtein();
-            HashMap<String, String> convertion_table = parser.parseGeneToProtein(
-                    inputfilename);
-            inputfilename = this.folder + "Solanum_phureja.txt";
-            Po_ParseGo goparser = new Po_ParseGo();
-            model = goparser.addGeneGoToModel(inputfilename, convertion_table,
-                    model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        // GFF file containing the gene information
+        scheduler.add("PGSC_DM_v3.4_gene.gff", new SourceScheduler.FileSource(
+                folder + "PGSC_DM_v3.4_gene.gff", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                Po_ParseGeneInfo parser = new Po_ParseGeneInfo();
+                return parser.getModelFromGff(inputfilename, model);
             }
-        }
+        }, folder + "PGSC_DM_v3.4_gene.gff");
 
-        try {
-            // GFF file containing the PGSC gene to PGSC peptide information
-            inputfilename = this.folder + "PGSC_gene_UniRef.txt";
-            Po_ParseProtein parser = new Po_ParseProtein();
-            model = parser.addProteinToModel(inputfilename, model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
+        // File containing the gene description
+        scheduler.add("PGSC_DM_v3.4_gene_func.txt",
+                new SourceScheduler.FileSource(
+                folder + "PGSC_DM_v3.4_gene_func.txt", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                Po_ParseGeneDescription parser = new Po_ParseGeneDescription();
+                return parser.addGeneDescriptionToModel(inputfilename, model);
             }
-        }
+        }, folder + "PGSC_DM_v3.4_gene_func.txt");
 
+        // GO annotation of the PGSC peptides, converted to PGSC genes
+        scheduler.add("Solanum_phureja.txt", new SourceScheduler.FileSource(
+                folder + "Solanum_phureja.txt", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                Po_ParseGeneToProtein parser = new Po_ParseGeneToProtein();
+                Po_ConversionTable convertion_table = parser.parseGeneToProtein(
+                        folder + "PGSC_DM_v3.4_g2t2c2p2func.txt");
+                Po_ParseGo goparser = new Po_ParseGo();
+                return goparser.addGeneGoToModel(inputfilename,
+                        convertion_table, model);
+            }
+        }, folder + "PGSC_DM_v3.4_g2t2c2p2func.txt",
+                folder + "Solanum_phureja.txt");
 
-        System.out.println("Model final: " + model.size());
-        try {
-            if (!model.isEmpty()) {
-                ModelIO mio = new ModelIO();
-                String outputfilename = this.folder + "genemodel.rdf";
-                mio.printModelToFile(model, outputfilename);
+        // File containing the PGSC gene to UniRef protein information
+        scheduler.add("PGSC_gene_UniRef.txt", new SourceScheduler.FileSource(
+                folder + "PGSC_gene_UniRef.txt", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                Po_ParseProtein parser = new Po_ParseProtein();
+                return parser.addProteinToModel(inputfilename, model);
             }
+        }, folder + "PGSC_gene_UniRef.txt");
+
+        model = scheduler.run(model);
+
+        System.out.println("Model final: " + this.mio.size(model));
+        try {
+            this.mio.saveModel(model, outputfilename);
         } catch (IOException ex) {
             System.err.println();
             LOG.log(Level.SEVERE, "Error while writting: {0}", ex.getMessage());
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class filters out of a stream all the bytes which are not printable
+ * ASCII characters (0x20 to 0x7e), except the tabulations and the line
+ * terminators.
+ *
+ * This is needed for the gene description file from Arabidopsis which
+ * contains character making the generation of the RDF impossible. The
+ * characters are removed while the file is parsed, instead of writing a
+ * cleaned copy of the file first.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class PrintableInputStream extends FilterInputStream {
+
+    /**
+     * Constructor.
+     * @param tmpin the stream to filter.
+     */
+    public PrintableInputStream(final InputStream tmpin) {
+        super(tmpin);
+    }
+
+    /**
+     * Return whether a byte is kept in the stream.
+     * @param b the byte to test.
+     * @return true if the byte is a printable ASCII character, a tabulation
+     * or a line terminator.
+     */
+    private static boolean isPrintable(final int b) {
+        return (b >= 0x20 && b <= 0x7e) || b == '\t' || b == '\n'
+                || b == '\r';
+    }
+
+    @Override
+    public final int read() throws IOException {
+        int b;
+        do {
+            b = this.in.read();
+        } while (b != -1 && !isPrintable(b));
+        return b;
+    }
+
+    @Override
+    public final int read(final byte[] b, final int off, final int len)
+            throws IOException {
+        int n;
+        do {
+            n = this.in.read(b, off, len);
+            if (n <= 0) {
+                return n;
+            }
+            // Compact the bytes kept in place
+            int kept = off;
+            for (int i = off; i < off + n; i++) {
+                if (isPrintable(b[i])) {
+                    b[kept++] = b[i];
+                }
+            }
+            n = kept - off;
+        } while (n == 0);
+        return n;
+    }
+
+    @Override
+    public final long skip(final long n) throws IOException {
+        final byte[] tmp = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            final int r = this.read(tmp, 0,
+                    (int) Math.min(n - skipped, tmp.length));
+            if (r < 0) {
+                break;
+            }
+            skipped += r;
+        }
+        return skipped;
+    }
+
+    @Override
+    public final int available() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public final boolean markSupported() {
+        return false;
+    }
+}
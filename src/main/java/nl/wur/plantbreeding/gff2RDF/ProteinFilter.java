@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.NodeIterator;
+import com.hp.hpl.jena.rdf.model.RDFNode;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * This class holds a set of proteins (UniProt accessions) used to keep only
+ * the interactions involving one of them (see MitabReader).
+ *
+ * The proteins are kept in a HashSet and in a Bloom filter, which tells
+ * whether a protein may be in the set directly from the bytes of its
+ * identifier. Most of the proteins of the MITAB files are not in the set and
+ * are thus rejected without any String being created.
+ *
+ * The set is loaded from a file: a model written by a previous run (the
+ * proteins linked to the genes, see ObjectToModel.addProteinToModel) in
+ * RDF/XML, N-Triples, N-Quads or Turtle, compressed or not, or in the binary
+ * format (.rdfb), or a list of accessions, one per line.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class ProteinFilter {
+
+    /** URI of the proteins in the models. */
+    private static final String PROTEIN_URI =
+            "http://purl.uniprot.org/uniprot/";
+    /** Extensions of the text RDF files (before the compression one). */
+    private static final String[] RDF_EXTENSIONS = {".rdf", ".owl", ".xml",
+        ".nt", ".nq", ".ttl"};
+    /** Number of bits of the Bloom filter per protein. */
+    private static final int BITS_PER_PROTEIN = 10;
+    /** Number of bits of the Bloom filter set per protein. */
+    private static final int HASHES = 7;
+    /** Encoding of the identifiers. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** The proteins of the set. */
+    private final Set<String> proteins;
+    /** Bits of the Bloom filter. */
+    private final long[] bits;
+    /** Number of bits of the Bloom filter. */
+    private final int nbits;
+
+    /**
+     * Constructor.
+     * @param tmpproteins the identifiers of the proteins of the set.
+     */
+    public ProteinFilter(final Set<String> tmpproteins) {
+        this.proteins = new HashSet<String>(tmpproteins);
+        this.nbits = Math.max(64, this.proteins.size() * BITS_PER_PROTEIN);
+        this.bits = new long[(this.nbits + 63) / 64];
+        for (String protein : this.proteins) {
+            final byte[] bytes = protein.getBytes(UTF8);
+            final long hash = hash(bytes, 0, bytes.length);
+            for (int i = 0; i < HASHES; i++) {
+                final int bit = this.getBit(hash, i);
+                this.bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+
+    /**
+     * Load the set of proteins from a file, an RDF model or a list of
+     * accessions (see above).
+     * @param filename the path to the file.
+     * @return the ProteinFilter of the proteins of the file.
+     * @throws IOException when something goes wrong while reading the file.
+     */
+    public static ProteinFilter load(final String filename)
+            throws IOException {
+        final Set<String> ids = new HashSet<String>();
+        String name = filename;
+        if (name.endsWith(".gz") || name.endsWith(".bz2")
+                || name.endsWith(".zip")) {
+            name = name.substring(0, name.lastIndexOf('.'));
+        }
+        if (name.endsWith(".rdfb")) {
+            final Model model = new ModelIO().readBinary(filename);
+            try {
+                final NodeIterator it = model.listObjectsOfProperty(
+                        model.createProperty(new App().getUri()
+                        + "GENE#Protein"));
+                while (it.hasNext()) {
+                    final RDFNode node = it.next();
+                    if (node.isURIResource() && node.asResource().getURI()
+                            .startsWith(PROTEIN_URI)) {
+                        ids.add(node.asResource().getURI().substring(
+                                PROTEIN_URI.length()));
+                    }
+                }
+            } finally {
+                model.close();
+            }
+        } else if (isRdf(name)) {
+            readUris(filename, ids);
+        } else {
+            readList(filename, ids);
+        }
+        System.out.println("Loaded " + ids.size() + " proteins from: "
+                + filename);
+        return new ProteinFilter(ids);
+    }
+
+    /**
+     * Return whether a file is a text RDF file, from its extension.
+     * @param name the name of the file without compression extension.
+     * @return true if the file is in RDF/XML, N-Triples, N-Quads or Turtle.
+     */
+    private static boolean isRdf(final String name) {
+        for (String extension : RDF_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read the identifiers of all the protein URIs found in a text RDF file.
+     * @param filename the path to the file.
+     * @param ids the set to which the identifiers are added.
+     * @throws IOException when something goes wrong while reading the file.
+     */
+    private static void readUris(final String filename, final Set<String> ids)
+            throws IOException {
+        final LineReader br = new LineReader(filename);
+        try {
+            while (br.next()) {
+                final String line = br.toString();
+                int start = line.indexOf(PROTEIN_URI);
+                while (start >= 0) {
+                    start = start + PROTEIN_URI.length();
+                    int end = start;
+                    while (end < line.length()) {
+                        final char c = line.charAt(end);
+                        if (c == '>' || c == '"' || c == '\'' || c == '<'
+                                || c <= ' ') {
+                            break;
+                        }
+                        end++;
+                    }
+                    if (end > start) {
+                        ids.add(line.substring(start, end));
+                    }
+                    start = line.indexOf(PROTEIN_URI, end);
+                }
+            }
+        } finally {
+            br.close();
+        }
+    }
+
+    /**
+     * Read a list of accessions, the first word of each line. The empty
+     * lines and the ones starting with '#' are ignored.
+     * @param filename the path to the file.
+     * @param ids the set to which the identifiers are added.
+     * @throws IOException when something goes wrong while reading the file.
+     */
+    private static void readList(final String filename, final Set<String> ids)
+            throws IOException {
+        final LineReader br = new LineReader(filename);
+        final FieldCursor content = new FieldCursor('\t');
+        try {
+            while (br.next()) {
+                content.reset(br, true);
+                if (content.isEmpty(0) || content.startsWith(0, "#")) {
+                    continue;
+                }
+                String id = content.getTrimmed(0);
+                final int space = id.indexOf(' ');
+                if (space > 0) {
+                    id = id.substring(0, space);
+                }
+                if (id.startsWith(PROTEIN_URI)) {
+                    id = id.substring(PROTEIN_URI.length());
+                }
+                ids.add(id);
+            }
+        } finally {
+            br.close();
+        }
+    }
+
+    /**
+     * Return the number of proteins of the set.
+     * @return the number of proteins.
+     */
+    public final int size() {
+        return this.proteins.size();
+    }
+
+    /**
+     * Return whether a protein is in the set.
+     * @param protein the identifier of the protein.
+     * @return true if the protein is in the set.
+     */
+    public final boolean contains(final String protein) {
+        return this.proteins.contains(protein);
+    }
+
+    /**
+     * Return whether a protein, given by the UTF-8 bytes of its identifier,
+     * may be in the set. A false answer is always right, a true one has to
+     * be checked with contains.
+     * @param buf the buffer holding the identifier.
+     * @param start the index of the first byte of the identifier.
+     * @param end the index after the last byte of the identifier.
+     * @return false if the protein is not in the set.
+     */
+    public final boolean mightContain(final byte[] buf, final int start,
+            final int end) {
+        final long hash = hash(buf, start, end);
+        for (int i = 0; i < HASHES; i++) {
+            final int bit = this.getBit(hash, i);
+            if ((this.bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the index of the i-th bit of the Bloom filter for a hash.
+     * @param hash the 64 bits hash of an identifier.
+     * @param i the index of the bit, from 0 to HASHES - 1.
+     * @return the index of the bit in the filter.
+     */
+    private int getBit(final long hash, final int i) {
+        final int h = (int) hash + i * (int) (hash >>> 32);
+        return (h & Integer.MAX_VALUE) % this.nbits;
+    }
+
+    /**
+     * Hash the bytes of an identifier (64 bits FNV-1a).
+     * @param buf the buffer holding the identifier.
+     * @param start the index of the first byte of the identifier.
+     * @param end the index after the last byte of the identifier.
+     * @return the hash of the identifier.
+     */
+    private static long hash(final byte[] buf, final int start,
+            final int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h = (h ^ (buf[i] & 0xff)) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
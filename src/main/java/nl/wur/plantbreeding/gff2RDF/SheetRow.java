@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+/**
+ * This class represents a row of a sheet, read from an excel file or from a
+ * CSV file (see ExcelIO), whose cells are either text or numbers.
+ *
+ * The numeric cells of the excel files keep their value as a double, so that
+ * a parser retrieves it with getDouble without it being formatted into a
+ * String and parsed back. The cells of the CSV files are text, getDouble
+ * parses them.
+ *
+ * The same SheetRow is filled again for each row of a sheet, it should not
+ * be kept by the RowHandler.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public final class SheetRow {
+
+    /** Index of the row in the sheet, -1 if the row has no cell. */
+    private int rownum = -1;
+    /** Number of cells of the row, up to the last one which is not empty. */
+    private int size = 0;
+    /** Text of the cells, null for the numeric or empty cells. */
+    private String[] strings = new String[16];
+    /** Value of the numeric cells. */
+    private double[] numbers = new double[16];
+    /** Whether each cell is numeric. */
+    private boolean[] numeric = new boolean[16];
+
+    /**
+     * Empty the row to fill it with the cells of another row.
+     * @param tmprownum the index of the row in the sheet.
+     */
+    void clear(final int tmprownum) {
+        for (int i = 0; i < this.size; i++) {
+            this.strings[i] = null;
+            this.numeric[i] = false;
+        }
+        this.size = 0;
+        this.rownum = tmprownum;
+    }
+
+    /**
+     * Set a cell of the row to a text.
+     * @param column the index of the column of the cell.
+     * @param value the text of the cell.
+     */
+    void setString(final int column, final String value) {
+        this.grow(column);
+        this.strings[column] = value;
+        this.numeric[column] = false;
+    }
+
+    /**
+     * Set a cell of the row to a number.
+     * @param column the index of the column of the cell.
+     * @param value the value of the cell.
+     */
+    void setNumber(final int column, final double value) {
+        this.grow(column);
+        this.strings[column] = null;
+        this.numbers[column] = value;
+        this.numeric[column] = true;
+    }
+
+    /**
+     * Make room for the given column and extend the row up to it.
+     * @param column the index of the column of a cell.
+     */
+    private void grow(final int column) {
+        if (column >= this.strings.length) {
+            final int length = Math.max(column + 1, this.strings.length * 2);
+            final String[] tmpstrings = new String[length];
+            System.arraycopy(this.strings, 0, tmpstrings, 0, this.size);
+            this.strings = tmpstrings;
+            final double[] tmpnumbers = new double[length];
+            System.arraycopy(this.numbers, 0, tmpnumbers, 0, this.size);
+            this.numbers = tmpnumbers;
+            final boolean[] tmpnumeric = new boolean[length];
+            System.arraycopy(this.numeric, 0, tmpnumeric, 0, this.size);
+            this.numeric = tmpnumeric;
+        }
+        if (column >= this.size) {
+            this.size = column + 1;
+        }
+    }
+
+    /**
+     * Return the index of the row in the sheet.
+     * @return the index of the row, starting at 0.
+     */
+    public int getRowNum() {
+        return this.rownum;
+    }
+
+    /**
+     * Return the number of cells of the row.
+     * @return the index of the last cell which is not empty, plus one.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return whether a cell is numeric.
+     * @param i the index of the column of the cell.
+     * @return true if the cell was read as a number from an excel file.
+     */
+    public boolean isNumeric(final int i) {
+        return i < this.size && this.numeric[i];
+    }
+
+    /**
+     * Return whether a cell is empty.
+     * @param i the index of the column of the cell.
+     * @return true if the cell has neither a number nor a text.
+     */
+    public boolean isEmpty(final int i) {
+        return i >= this.size || (!this.numeric[i]
+                && (this.strings[i] == null || this.strings[i].isEmpty()));
+    }
+
+    /**
+     * Return the content of a cell as a String. The numbers are formatted as
+     * by Double.toString.
+     * @param i the index of the column of the cell.
+     * @return the content of the cell, "" if it is empty.
+     */
+    public String getString(final int i) {
+        if (i >= this.size) {
+            return "";
+        } else if (this.numeric[i]) {
+            return Double.toString(this.numbers[i]);
+        }
+        return this.strings[i] == null ? "" : this.strings[i];
+    }
+
+    /**
+     * Return the content of a cell as a String without the white spaces at
+     * its beginning and its end.
+     * @param i the index of the column of the cell.
+     * @return the trimmed content of the cell, "" if it is empty.
+     */
+    public String getTrimmed(final int i) {
+        return this.getString(i).trim();
+    }
+
+    /**
+     * Return the value of a numeric cell, or of a text cell containing a
+     * number.
+     * @param i the index of the column of the cell.
+     * @return the value of the cell.
+     * @throws NumberFormatException if the cell does not contain a number.
+     */
+    public double getDouble(final int i) {
+        if (this.isNumeric(i)) {
+            return this.numbers[i];
+        }
+        return Double.parseDouble(this.getTrimmed(i));
+    }
+}
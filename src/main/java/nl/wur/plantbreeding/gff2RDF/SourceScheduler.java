@@ -0,0 +1,367 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class runs the parsing of the different sources (files) of an
+ * annotation and gathers their information into one model.
+ *
+ * The sources are independent from each other, each of them is thus parsed
+ * on its own thread into a private model. These models are then merged, in
+ * the order in which the sources were added, into the final model. The time
+ * needed is then the one of the slowest source instead of the sum of all.
+ *
+ * When the model is streamed to a file, the sources are parsed one after the
+ * other directly into the final model so that nothing is kept in memory.
+ *
+ * With a BuildCache, the sources whose input files did not change since the
+ * last run are read from the cache instead of being parsed.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class SourceScheduler {
+
+    /**
+     * Interface of the sources of information to add to the model.
+     */
+    public interface Source {
+
+        /**
+         * Parse the source and add its information to the given model.
+         * The errors met while parsing are reported by the source itself.
+         * @param model the Jena Model to which the information is added.
+         * @return the Jena Model with the information of the source.
+         * @throws IOException once reported, when the source could not be
+         * parsed entirely; what was added is kept but not cached.
+         */
+        Model addToModel(Model model) throws IOException;
+    }
+
+    /**
+     * Source reading one input file, which reports the errors met while
+     * parsing it on the error output (with their stack trace in debug mode)
+     * before throwing them again.
+     */
+    public abstract static class FileSource implements Source {
+
+        /** Path to the input file. */
+        private final String inputfilename;
+        /** Whether to print the stack trace of the errors. */
+        private final boolean debug;
+
+        /**
+         * Constructor.
+         * @param tmpfilename the path to the input file, used in the errors.
+         * @param tmpdebug boolean to print the stack trace of the errors.
+         */
+        protected FileSource(final String tmpfilename,
+                final boolean tmpdebug) {
+            this.inputfilename = tmpfilename;
+            this.debug = tmpdebug;
+        }
+
+        @Override
+        public final Model addToModel(final Model model) throws IOException {
+            try {
+                return this.parse(this.inputfilename, model);
+            } catch (IOException ex) {
+                System.err.println();
+                LOG.log(Level.SEVERE, "IO Error in " + this.inputfilename
+                        + ": \"{0}\"", ex.getMessage());
+                if (this.debug) {
+                    ex.printStackTrace(System.err);
+                }
+                throw ex;
+            }
+        }
+
+        /**
+         * Parse the input file and add its information to the given model.
+         * @param inputfilename the path to the input file.
+         * @param model the Jena Model to which the information is added.
+         * @return the Jena Model with the information of the file.
+         * @throws IOException When something goes wrong with the file.
+         */
+        protected abstract Model parse(String inputfilename, Model model)
+                throws IOException;
+    }
+
+    /** Logger used for outputing log information. */
+    private static final Logger LOG = Logger.getLogger(
+            SourceScheduler.class.getName());
+
+    /** The sources to parse, per name, in the order in which they are added. */
+    private final Map<String, Source> sources =
+            new LinkedHashMap<String, Source>();
+    /** Whether the sources are parsed concurrently. */
+    private boolean parallel = true;
+    /** Maximal number of sources parsed at the same time. */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /** The input files of the sources, per name. */
+    private final Map<String, String[]> inputs =
+            new HashMap<String, String[]>();
+    /** ModelIO giving the named graph of each source, if any. */
+    private ModelIO mio = null;
+    /** Cache of the triples of the sources, if any. */
+    private BuildCache cache = null;
+
+    /**
+     * Add a source to parse.
+     * @param name a String identifying the source (its file for example).
+     * @param source the Source to parse.
+     * @param files the paths to the input files of the source, used to know
+     * whether the source changed since it was cached (see setCache).
+     */
+    public final void add(final String name, final Source source,
+            final String... files) {
+        this.sources.put(name, source);
+        this.inputs.put(name, files);
+    }
+
+    /**
+     * Set whether the sources are parsed concurrently into private models or
+     * one after the other directly into the final model.
+     * @param tmpparallel a boolean, true to parse the sources concurrently.
+     */
+    public final void setParallel(final boolean tmpparallel) {
+        this.parallel = tmpparallel;
+    }
+
+    /**
+     * Set the maximal number of sources parsed at the same time.
+     * @param tmpthreads the number of threads, at least 1.
+     */
+    public final void setThreads(final int tmpthreads) {
+        this.threads = Math.max(1, tmpthreads);
+    }
+
+    /**
+     * Set the ModelIO which created the model, so that the information of
+     * each source is added to its named graph (see ModelIO.getNamedModel).
+     * @param tmpmio the ModelIO to use.
+     */
+    public final void setModelIO(final ModelIO tmpmio) {
+        this.mio = tmpmio;
+    }
+
+    /**
+     * Set the cache from which the sources whose input files did not change
+     * are read, and in which the triples of the sources parsed are stored.
+     * @param tmpcache the BuildCache to use, null to parse all the sources.
+     */
+    public final void setCache(final BuildCache tmpcache) {
+        this.cache = tmpcache;
+    }
+
+    /**
+     * Return the model in which the information of a source is added.
+     * @param model the Jena Model given to run.
+     * @param name the name of the source.
+     * @return the named graph of the source or the model itself.
+     */
+    private Model getModel(final Model model, final String name) {
+        if (this.mio == null) {
+            return model;
+        }
+        return this.mio.getNamedModel(model, name);
+    }
+
+    /**
+     * Parse all the sources and add their information to the given model.
+     * @param model the Jena Model to which the information is added.
+     * @return the Jena Model with the information of all the sources.
+     */
+    public final Model run(Model model) {
+        if (!this.parallel || this.threads == 1 || this.sources.size() < 2) {
+            for (Map.Entry<String, Source> entry : this.sources.entrySet()) {
+                final Model target = this.getModel(model, entry.getKey());
+                final Model result = this.parse(entry.getKey(),
+                        entry.getValue(), target);
+                if (target == model) {
+                    model = result;
+                }
+            }
+            return model;
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(this.threads, this.sources.size()));
+        try {
+            final List<Future<Model>> results = new ArrayList<Future<Model>>();
+            for (final Map.Entry<String, Source> entry
+                    : this.sources.entrySet()) {
+                results.add(pool.submit(new Callable<Model>() {
+                    @Override
+                    public Model call() {
+                        return parse(entry.getKey(), entry.getValue(), null);
+                    }
+                }));
+            }
+
+            // Merge the models in the order of the sources
+            int i = 0;
+            for (String name : this.sources.keySet()) {
+                final Model submodel = this.get(results.get(i), name);
+                LOG.log(Level.FINE, "Merging {0} statements from {1}",
+                        new Object[]{submodel.size(), name});
+                this.getModel(model, name).add(submodel);
+                submodel.close();
+                i = i + 1;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return model;
+    }
+
+    /**
+     * Add the information of a source to a model, from the cache if its
+     * input files did not change, by parsing it otherwise.
+     * @param name the name of the source.
+     * @param source the Source to parse.
+     * @param model the Jena Model to which the information is added, null
+     * to add it to a new model (which is replaced by a clean one if the
+     * cache cannot be read).
+     * @return the Jena Model with the information of the source.
+     */
+    private Model parse(final String name, final Source source,
+            final Model model) {
+        Model target = model;
+        if (target == null) {
+            target = ModelFactory.createDefaultModel();
+        }
+        final String[] files = this.inputs.get(name);
+        if (this.cache == null || files.length == 0) {
+            return this.addToModel(name, source, target, null);
+        }
+        final BuildCache.Recorder recorder;
+        try {
+            if (this.cache.isUpToDate(name, files)) {
+                try {
+                    return this.cache.load(name, target);
+                } catch (Exception ex) {
+                    // A truncated or corrupted entry fails while it is read
+                    LOG.log(Level.WARNING, "Cannot read {0} from the cache,"
+                            + " parsing it again: {1}",
+                            new Object[]{name, ex.getMessage()});
+                    this.cache.invalidate(name);
+                    if (model == null) {
+                        target.close();
+                        target = ModelFactory.createDefaultModel();
+                    }
+                }
+            }
+            recorder = this.cache.record(name, files, target);
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Cannot use the cache for {0}: {1}",
+                    new Object[]{name, ex.getMessage()});
+            return this.addToModel(name, source, target, null);
+        }
+        return this.addToModel(name, source, target, recorder);
+    }
+
+    /**
+     * Parse a source, its triples are only cached if it was parsed entirely.
+     * @param name the name of the source.
+     * @param source the Source to parse.
+     * @param model the Jena Model to which the information is added.
+     * @param recorder the BuildCache.Recorder of the source, null if it is
+     * not cached.
+     * @return the Jena Model with the information of the source.
+     */
+    private Model addToModel(final String name, final Source source,
+            final Model model, final BuildCache.Recorder recorder) {
+        boolean parsed = false;
+        try {
+            final Model result = source.addToModel(model);
+            parsed = true;
+            return result;
+        } catch (IOException ex) {
+            // Already reported by the source
+            LOG.log(Level.FINE, "{0} was not parsed entirely", name);
+            return model;
+        } finally {
+            if (recorder != null && parsed) {
+                try {
+                    recorder.commit();
+                } catch (IOException ex) {
+                    LOG.log(Level.WARNING, "Cannot cache {0}: {1}",
+                            new Object[]{name, ex.getMessage()});
+                }
+            } else if (recorder != null) {
+                recorder.abort();
+            }
+        }
+    }
+
+    /**
+     * Wait for the model of a source and return it.
+     * Errors not handled by the source are thrown again as they would be
+     * if the source had been parsed on the calling thread.
+     * @param result the Future of the model of the source.
+     * @param name the name of the source.
+     * @return the Jena Model filled by the source.
+     */
+    private Model get(final Future<Model> result, final String name) {
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing "
+                    + name, ex);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Error while parsing " + name,
+                    cause);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2013, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.shared.WrappedIOException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This is a write-only Jena Graph which does not keep the triples in memory
+ * but writes them as they come to the given Writer in N-Triples (or in
+ * N-Quads if a graph name is given).
+ *
+ * Wrapped into a Model (see ModelIO.createModel) it can be filled by the
+ * ObjectToModel class as any other model while using a constant amount of
+ * memory whatever the size of the input files.
+ * Nothing can be queried back from this graph and the triples added several
+ * times are written several times.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class StreamingGraph extends GraphBase {
+
+    /** Writer in which the triples are written. */
+    private final Writer out;
+    /** Name of the graph as written in N-Quads, null for N-Triples. */
+    private final String graphname;
+    /** Number of triples written so far. */
+    private int count = 0;
+
+    /**
+     * Constructor writing the triples in N-Triples.
+     * @param tmpout the Writer in which the triples are written, it should be
+     * buffered.
+     */
+    public StreamingGraph(final Writer tmpout) {
+        this(tmpout, null);
+    }
+
+    /**
+     * Constructor writing the triples in N-Quads in the given graph.
+     * @param tmpout the Writer in which the triples are written, it should be
+     * buffered.
+     * @param tmpgraphname the URI of the graph in which the triples are, if
+     * null the triples are written in N-Triples.
+     */
+    public StreamingGraph(final Writer tmpout, final String tmpgraphname) {
+        this.out = tmpout;
+        this.graphname = tmpgraphname;
+    }
+
+    /**
+     * Write the given triple to the output.
+     * @param t the Triple to write.
+     */
+    @Override
+    public void performAdd(final Triple t) {
+        try {
+            writeNode(t.getSubject(), this.out);
+            this.out.write(' ');
+            writeNode(t.getPredicate(), this.out);
+            this.out.write(' ');
+            writeNode(t.getObject(), this.out);
+            if (this.graphname != null) {
+                this.out.write(" <");
+                writeEscaped(this.graphname, this.out);
+                this.out.write('>');
+            }
+            this.out.write(" .\n");
+        } catch (IOException ex) {
+            throw new WrappedIOException(ex);
+        }
+        this.count = this.count + 1;
+    }
+
+    /**
+     * The triples are not kept, so nothing is ever found.
+     * @param m the TripleMatch to look for.
+     * @return an empty iterator.
+     */
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(final TripleMatch m) {
+        return NullIterator.instance();
+    }
+
+    /**
+     * Return the number of triples written so far.
+     * @return the number of triples written.
+     */
+    @Override
+    protected int graphBaseSize() {
+        return this.count;
+    }
+
+    /**
+     * Flush and close the underlying Writer.
+     */
+    @Override
+    public void close() {
+        try {
+            this.out.close();
+        } catch (IOException ex) {
+            throw new WrappedIOException(ex);
+        }
+        super.close();
+    }
+
+    /**
+     * Write the N-Triples representation of a node.
+     * @param node the Node (URI, blank node or literal) to write.
+     * @param out the Writer to write into.
+     * @throws IOException if something goes wrong while writing.
+     */
+    public static void writeNode(final Node node, final Writer out)
+            throws IOException {
+        if (node.isURI()) {
+            out.write('<');
+            writeEscaped(node.getURI(), out);
+            out.write('>');
+        } else if (node.isBlank()) {
+            out.write("_:A");
+            String label = node.getBlankNodeLabel();
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                        || (c >= 'A' && c <= 'Z' && c != 'X')) {
+                    out.write(c);
+                } else {
+                    out.write('X');
+                    out.write(Integer.toHexString(c));
+                    out.write('X');
+                }
+            }
+        } else {
+            out.write('"');
+            writeEscaped(node.getLiteralLexicalForm(), out);
+            out.write('"');
+            String lang = node.getLiteralLanguage();
+            if (lang != null && !lang.isEmpty()) {
+                out.write('@');
+                out.write(lang);
+            } else if (node.getLiteralDatatypeURI() != null) {
+                out.write("^^<");
+                writeEscaped(node.getLiteralDatatypeURI(), out);
+                out.write('>');
+            }
+        }
+    }
+
+    /**
+     * Write the given String escaping the characters as required by the
+     * N-Triples specification.
+     * @param s the String to write.
+     * @param out the Writer to write into.
+     * @throws IOException if something goes wrong while writing.
+     */
+    private static void writeEscaped(final String s, final Writer out)
+            throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c >= 0x20 && c <= 0x7e) {
+                        out.write(c);
+                    } else if (Character.isHighSurrogate(c)
+                            && i + 1 < s.length()
+                            && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        writeHex("\\U", s.codePointAt(i), 8, out);
+                        i = i + 1;
+                    } else {
+                        writeHex("\\u", c, 4, out);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Write an escaped character as its hexadecimal code point.
+     * @param prefix the escape sequence to write before the code point.
+     * @param codepoint the code point of the character.
+     * @param width the number of hexadecimal digits to write.
+     * @param out the Writer to write into.
+     * @throws IOException if something goes wrong while writing.
+     */
+    private static void writeHex(final String prefix, final int codepoint,
+            final int width, final Writer out) throws IOException {
+        String hex = Integer.toHexString(codepoint).toUpperCase();
+        out.write(prefix);
+        for (int j = hex.length(); j < width; j++) {
+            out.write('0');
+        }
+        out.write(hex);
+    }
+}
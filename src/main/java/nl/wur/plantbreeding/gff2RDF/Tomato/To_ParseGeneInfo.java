@@ -31,13 +31,13 @@
 package nl.wur.plantbreeding.gff2RDF.Tomato;
 
 import com.hp.hpl.jena.rdf.model.Model;
-import java.io.BufferedReader;
-import java.io.DataInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import nl.wur.plantbreeding.gff2RDF.ChunkedFileParser;
+import nl.wur.plantbreeding.gff2RDF.FieldCursor;
+import nl.wur.plantbreeding.gff2RDF.GffAttributes;
+import nl.wur.plantbreeding.gff2RDF.LineReader;
 import nl.wur.plantbreeding.gff2RDF.ObjectToModel;
 import nl.wur.plantbreeding.gff2RDF.object.Gene;
 import nl.wur.plantbreeding.gff2RDF.object.Marker;
@@ -49,7 +49,8 @@ import nl.wur.plantbreeding.gff2RDF.object.Marker;
  * As format may change, the parser may need changes for futur release.
  * @author Pierre-Yves Chibon -- py@chibon.fr
  */
-public class To_ParseGeneInfo {
+public class To_ParseGeneInfo
+        implements ChunkedFileParser.LineParser<Object> {
 
     /** Logger used for outputing log information. */
     private static final Logger LOG = Logger.getLogger(
@@ -67,99 +68,119 @@ public class To_ParseGeneInfo {
      * description retrieved by this method.
      * @throws IOException When something goes wrong with a file.
      */
-    public Model addGenesToModel(String inputfilename, Model model)
+    public Model addGenesToModel(String inputfilename, final Model model)
             throws IOException {
-        ObjectToModel obj2m = new ObjectToModel();
+        final ObjectToModel obj2m = new ObjectToModel();
 
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
 
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        String strline;
-        //Read File Line By Line
-        int cnt = 0;
-        while ((strline = br.readLine()) != null) {
-            final String[] content = strline.split("\t");
-            // Deals with gene
-            if (content.length < 2) {
-                continue;
-            }
-
-            if (content[1].equalsIgnoreCase("itag_sgn_markers")
-                    && content[2].equalsIgnoreCase("match")) {
-                Marker marker = new Marker();
-                // Add the SGN marker to the model
-                final String sgnid = content[content.length - 1].split(
-                        "Alias=")[1].split(";")[0];
-                marker.setId(sgnid);
-                marker.setSgnid(sgnid);
-
-                final String name = content[content.length - 1].split(
-                        "Name=")[1].split(";")[0];
-                marker.setName(name);
-                
-                marker.setChromosome(content[0]);
-
-                final int start = Integer.parseInt(content[3]);
-                final int stop = Integer.parseInt(content[4]);
-                if (start < stop) {
-                    marker.setStart(start);
-                    marker.setStop(stop);
+        // Parse the file in parallel, the genes and markers are added in the
+        // file order
+        ChunkedFileParser<Object> reader = new ChunkedFileParser<Object>(this);
+        final int found = reader.parse(inputfilename,
+                new ChunkedFileParser.RecordHandler<Object>() {
+            @Override
+            public void addRecord(final Object record) {
+                if (record instanceof Marker) {
+                    obj2m.addToModel((Marker) record, model);
                 } else {
-                    marker.setStart(stop);
-                    marker.setStop(start);
+                    obj2m.addToModel((Gene) record, model);
                 }
+            }
+        });
+
+        // Add the statements still pending to the model
+        obj2m.flush();
+
+        LOG.log(Level.FINE, reader.getLineCount() + " lines read");
+        LOG.log(Level.FINE, found + " genes and markers found");
+        LOG.log(Level.FINE, obj2m.getAvoidedAdds()
+                + " redundant statements avoided");
+        return model;
+    }
 
-                model = obj2m.addToModel(marker, model);
-
-            } else if (content[1].equalsIgnoreCase("itag_renaming")
-                    && content[2].equalsIgnoreCase("mrna")) {
-                Gene gene = new Gene();
-                // Add gene information (description, GO...) to the model
-                final String desc = content[content.length - 1];
-                String name = null;
-                String description = null;
-                final ArrayList<String> go = new ArrayList<String>();
-                for (String val : desc.split(";")) {
-                    final String key = val.split("=")[0];
-                    String value = val.split("=")[1];
-                    if (key.equalsIgnoreCase("ID")) {
-                        value = value.split("mRNA:")[1];
-                        name = value;
-                    } else if (key.equalsIgnoreCase("note")) {
-                        description = value;
-                    } else if (key.equalsIgnoreCase("ontology_term")) {
-                        gene.addGoTerm(value);
+    /**
+     * Parse one line of the ITAG2_genomic_all.gff3 file and return the SGN
+     * marker or the gene it describes.
+     * @param line a line of the GFF file.
+     * @param content a FieldCursor to use to read the line.
+     * @param attributes a GffAttributes to use to read the attributes.
+     * @return a Marker or a Gene, or null if the line describes neither.
+     */
+    @Override
+    public Object parseLine(final CharSequence line,
+            final FieldCursor content, final GffAttributes attributes) {
+        content.reset(line, false);
+        // Deals with gene
+        if (content.size() < 2) {
+            return null;
+        }
+        final int last = content.size() - 1;
+        attributes.reset(line, content.start(last), content.end(last));
+
+        if (content.equalsIgnoreCase(1, "itag_sgn_markers")
+                && content.equalsIgnoreCase(2, "match")) {
+            Marker marker = new Marker();
+            // Add the SGN marker to the model
+            final String sgnid = attributes.get("Alias");
+            marker.setId(sgnid);
+            marker.setSgnid(sgnid);
+
+            final String name = attributes.get("Name");
+            marker.setName(name);
+
+            marker.setChromosome(content.get(0));
+
+            final int start = content.parseInt(3);
+            final int stop = content.parseInt(4);
+            if (start < stop) {
+                marker.setStart(start);
+                marker.setStop(stop);
+            } else {
+                marker.setStart(stop);
+                marker.setStop(start);
+            }
+            return marker;
+
+        } else if (content.equalsIgnoreCase(1, "itag_renaming")
+                && content.equalsIgnoreCase(2, "mrna")) {
+            Gene gene = new Gene();
+            // Add gene information (description, GO...) to the model
+            String name = null;
+            String description = null;
+            for (int i = 0; i < attributes.size(); i++) {
+                if (attributes.isKey(i, "ID", true)) {
+                    name = attributes.value(i);
+                    final int mrna = name.indexOf("mRNA:");
+                    if (mrna >= 0) {
+                        name = name.substring(mrna + "mRNA:".length());
                     }
+                } else if (attributes.isKey(i, "note", true)) {
+                    description = attributes.value(i);
+                } else if (attributes.isKey(i, "ontology_term", true)) {
+                    gene.addGoTerm(attributes.value(i));
                 }
-                gene.setLocus(name);
-                gene.setDescription(description);
-                gene.setType("gene:ITAG_renaming");
-                gene.setOrientation(content[6]);
-
-                final int start = Integer.parseInt(content[3]);
-                final int stop = Integer.parseInt(content[4]);
-
-                gene.setChromosome(content[0]);
-                if (start < stop) {
-                    gene.setStart(start);
-                    gene.setStop(stop);
-                } else {
-                    gene.setStart(stop);
-                    gene.setStop(start);
-                }
-
-                model = obj2m.addToModel(gene, model);
             }
-
-            cnt = cnt + 1;
+            gene.setLocus(name);
+            gene.setDescription(description);
+            gene.setType("gene:ITAG_renaming");
+            gene.setOrientation(content.get(6));
+
+            final int start = content.parseInt(3);
+            final int stop = content.parseInt(4);
+
+            gene.setChromosome(content.get(0));
+            if (start < stop) {
+                gene.setStart(start);
+                gene.setStop(stop);
+            } else {
+                gene.setStart(stop);
+                gene.setStop(start);
+            }
+            return gene;
         }
-        in.close();
-        return model;
+        return null;
     }
 
     public Model addProteinsToModel(String inputfilename, Model model)
@@ -169,38 +190,35 @@ public class To_ParseGeneInfo {
         System.out.println("Parsing: " + inputfilename
                 + " and adding information to a model of size " + model.size());
 
-        final FileInputStream fstream = new FileInputStream(inputfilename);
-        // Get the object of DataInputStream
-        final DataInputStream in = new DataInputStream(fstream);
-        final BufferedReader br =
-                new BufferedReader(new InputStreamReader(in));
-        String strline;
+        final LineReader br = new LineReader(inputfilename);
+        final FieldCursor content = new FieldCursor('\t');
+        final GffAttributes attributes = new GffAttributes();
         //Read File Line By Line
         int cnt = 0;
-        while ((strline = br.readLine()) != null) {
-            final String[] content = strline.split("\t");
+        while (br.next()) {
+            content.reset(br, false);
             // Deals with gene
-            if (content.length > 1) {
-                if (content[1].equalsIgnoreCase("ITAG_blastp_swissprot")
-                        && content[2].equalsIgnoreCase("match")) {
+            if (content.size() > 1) {
+                if (content.equalsIgnoreCase(1, "ITAG_blastp_swissprot")
+                        && content.equalsIgnoreCase(2, "match")) {
                     // Add Swissprot (verified) proteins to the model
-                    final String uniprotid =
-                            content[content.length - 1].split(
-                            "subject_id=")[1].split(
-                            ";")[0];
-                    final String geneid = content[0];//.split("\\.")[0];
+                    final int last = content.size() - 1;
+                    attributes.reset(br, content.start(last),
+                            content.end(last));
+                    final String uniprotid = attributes.get("subject_id");
+                    final String geneid = content.get(0);
 
                     model = obj2m.addProteinToModel(model,
                             geneid, uniprotid);
 
-                } else if (content[1].equalsIgnoreCase("ITAG_blastp_trembl")
-                        && content[2].equalsIgnoreCase("match")) {
+                } else if (content.equalsIgnoreCase(1, "ITAG_blastp_trembl")
+                        && content.equalsIgnoreCase(2, "match")) {
                     // Add Trembl (unverified) proteins to the model
-                    final String uniprotid =
-                            content[content.length - 1].split(
-                            "subject_id=")[1].split(
-                            ";")[0];
-                    final String geneid = content[0];//.split("\\.")[0];
+                    final int last = content.size() - 1;
+                    attributes.reset(br, content.start(last),
+                            content.end(last));
+                    final String uniprotid = attributes.get("subject_id");
+                    final String geneid = content.get(0);
 
                     model = obj2m.addProteinToModel(model,
                             geneid, uniprotid);
@@ -209,7 +227,10 @@ public class To_ParseGeneInfo {
             }
         }
         //Close the input stream
-        in.close();
+        br.close();
+
+        // Add the statements still pending to the model
+        obj2m.flush();
         return model;
     }
 }
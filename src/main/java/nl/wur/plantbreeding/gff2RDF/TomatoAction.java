@@ -32,7 +32,6 @@ package nl.wur.plantbreeding.gff2RDF;
 
 import nl.wur.plantbreeding.gff2RDF.Tomato.To_ParseGeneInfo;
 import com.hp.hpl.jena.rdf.model.Model;
-import com.hp.hpl.jena.rdf.model.ModelFactory;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -59,6 +58,10 @@ class TomatoAction {
             PotatoAction.class.getName());
     /** Folder in which the files are/will be stored. */
     private String folder = "Tomato_files/";
+    /** ModelIO used to create and save the model. */
+    private ModelIO mio = new ModelIO();
+    /** Whether the sources whose files did not change are read from cache. */
+    private boolean incremental = false;
 
     /**
      * Default constructor.
@@ -88,6 +91,23 @@ class TomatoAction {
         this.folder = tmpfolder;
     }
 
+    /**
+     * Set the ModelIO used to create and save the model.
+     * @param tmpmio the ModelIO to use.
+     */
+    public void setModelIO(ModelIO tmpmio) {
+        this.mio = tmpmio;
+    }
+
+    /**
+     * Set whether the sources whose files did not change since the last run
+     * are read from the cache of the folder instead of being parsed again.
+     * @param tmpincremental a boolean, true to use the cache.
+     */
+    public void setIncremental(boolean tmpincremental) {
+        this.incremental = tmpincremental;
+    }
+
     /**
      * This function downloads the file of the Potato genome annotation from
      * the PGSC.
@@ -110,13 +130,13 @@ class TomatoAction {
         urls.put("ftp://ftp.solgenomics.net/tomato_genome/annotation/ITAG2_release/ITAG2_protein_functional.gff3",
                 this.folder + "ITAG2_protein_functional.gff3");
 
+        DownloadManager manager = new DownloadManager(force);
         Set<String> urlset = urls.keySet();
-        int cnt = 0;
         for (Iterator<String> it = urlset.iterator(); it.hasNext();) {
             String key = it.next();
-            cnt = cnt + 1;
-            App.downaloadFile(key, urls.get(key), force);
+            manager.add(key, urls.get(key));
         }
+        manager.downloadAll();
         System.out.println();
     }
 
@@ -124,47 +144,60 @@ class TomatoAction {
      * This function reads the downloaded files and conver their content into
      * an RDF model which is stored in a Jena Model object.
      *
+     * The files are independent from each other, they are parsed at the same
+     * time (see SourceScheduler) unless the model is streamed.
+     *
      * @param debug boolean to print the stack trace of the exceptions catched.
      */
-    public void main(boolean debug) {
-        Model model = ModelFactory.createDefaultModel();
-        String inputfilename = "";
-
+    public void main(final boolean debug) {
+        String outputfilename = this.folder + "genemodel";
+        Model model;
         try {
-            // GFF file containing the gene information
-            inputfilename = this.folder + "ITAG2_genomic_all.gff3";
-            To_ParseGeneInfo parser = new To_ParseGeneInfo();
-            model = parser.addGenesToModel(inputfilename, model);
+            model = this.mio.createModel(outputfilename);
         } catch (IOException ex) {
             System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
+            LOG.log(Level.SEVERE, "Error while opening: {0}", ex.getMessage());
             if (debug) {
                 ex.printStackTrace(System.err);
             }
+            return;
         }
 
-        try {
-            // GFF file containing the protein information
-            inputfilename = this.folder + "ITAG2_protein_functional.gff3";
-            To_ParseGeneInfo parser = new To_ParseGeneInfo();
-            model = parser.addProteinsToModel(inputfilename, model);
-        } catch (IOException ex) {
-            System.err.println();
-            LOG.log(Level.SEVERE, "IO Error in " + inputfilename
-                    + ": \"{0}\"", ex.getMessage());
-            if (debug) {
-                ex.printStackTrace(System.err);
-            }
+        SourceScheduler scheduler = new SourceScheduler();
+        scheduler.setModelIO(this.mio);
+        scheduler.setParallel(this.mio.isInMemory());
+        if (this.incremental) {
+            scheduler.setCache(new BuildCache(this.folder + "cache"));
         }
 
-        System.out.println("Model final: " + model.size());
-        try {
-            if (!model.isEmpty()) {
-                ModelIO mio = new ModelIO();
-                String outputfilename = this.folder + "genemodel.rdf";
-                mio.printModelToFile(model, outputfilename);
+        // GFF file containing the gene information
+        scheduler.add("ITAG2_genomic_all.gff3", new SourceScheduler.FileSource(
+                folder + "ITAG2_genomic_all.gff3", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                To_ParseGeneInfo parser = new To_ParseGeneInfo();
+                return parser.addGenesToModel(inputfilename, model);
             }
+        }, folder + "ITAG2_genomic_all.gff3");
+
+        // GFF file containing the protein information
+        scheduler.add("ITAG2_protein_functional.gff3",
+                new SourceScheduler.FileSource(
+                folder + "ITAG2_protein_functional.gff3", debug) {
+            @Override
+            protected Model parse(String inputfilename, Model model)
+                    throws IOException {
+                To_ParseGeneInfo parser = new To_ParseGeneInfo();
+                return parser.addProteinsToModel(inputfilename, model);
+            }
+        }, folder + "ITAG2_protein_functional.gff3");
+
+        model = scheduler.run(model);
+
+        System.out.println("Model final: " + this.mio.size(model));
+        try {
+            this.mio.saveModel(model, outputfilename);
         } catch (IOException ex) {
             System.err.println();
             LOG.log(Level.SEVERE, "Error while writting: {0}", ex.getMessage());
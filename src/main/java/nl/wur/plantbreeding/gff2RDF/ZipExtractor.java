@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * This class extracts the files of zip archives.
+ *
+ * The entries of all the archives added are extracted at the same time,
+ * through a large buffer, and the CRC of each entry is checked before the
+ * extracted file is given its final name. Entries already extracted are
+ * skipped unless the extraction is forced.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class ZipExtractor {
+
+    /** Logger used for outputing log information. */
+    private static final Logger LOG = Logger.getLogger(
+            ZipExtractor.class.getName());
+
+    /** Size of the buffer used to copy the entries (1 MB). */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Suffix of the files being extracted. */
+    private static final String PART_SUFFIX = ".part";
+
+    /** Folder in which the files are extracted. */
+    private final String folder;
+    /** Whether to extract the files already present. */
+    private final boolean force;
+    /** The archives to extract. */
+    private final List<String> archives = new ArrayList<String>();
+    /** Number of entries extracted at the same time. */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Constructor.
+     * @param tmpfolder String of the name of the folder in which the files
+     * should be extracted.
+     * @param tmpforce boolean whether to extract the files even if they are
+     * already present.
+     */
+    public ZipExtractor(final String tmpfolder, final boolean tmpforce) {
+        this.folder = tmpfolder;
+        this.force = tmpforce;
+    }
+
+    /**
+     * Set the number of entries extracted at the same time.
+     * @param tmpthreads the number of threads, at least 1.
+     */
+    public final void setThreads(final int tmpthreads) {
+        this.threads = Math.max(1, tmpthreads);
+    }
+
+    /**
+     * Add an archive to extract.
+     * @param inputfile String of the path to the zip archive.
+     */
+    public final void add(final String inputfile) {
+        this.archives.add(inputfile);
+    }
+
+    /**
+     * Extract all the entries of the archives added.
+     * All the archives are extracted, even if some of them fail.
+     * @throws IOException the error of the first entry or archive which
+     * could not be extracted.
+     */
+    public final void extractAll() throws IOException {
+        IOException error = null;
+        final List<ZipFile> zipfiles = new ArrayList<ZipFile>();
+        final ExecutorService pool = Executors.newFixedThreadPool(
+                this.threads);
+        try {
+            final List<Future<Void>> results = new ArrayList<Future<Void>>();
+            for (String inputfile : this.archives) {
+                System.out.println("Trying to extract files from: '"
+                        + inputfile);
+                final ZipFile zf;
+                try {
+                    zf = new ZipFile(inputfile);
+                } catch (IOException ex) {
+                    LOG.log(Level.FINE, "Cannot open {0}: {1}",
+                            new Object[]{inputfile, ex.getMessage()});
+                    if (error == null) {
+                        error = ex;
+                    }
+                    continue;
+                }
+                zipfiles.add(zf);
+                Enumeration<? extends ZipEntry> e = zf.entries();
+                while (e.hasMoreElements()) {
+                    final ZipEntry ze = e.nextElement();
+                    if (ze.isDirectory()) {
+                        continue;
+                    }
+                    final File f;
+                    try {
+                        f = this.getOutputFile(ze);
+                    } catch (IOException ex) {
+                        LOG.log(Level.WARNING, "Entry skipped: {0}",
+                                ex.getMessage());
+                        if (error == null) {
+                            error = ex;
+                        }
+                        continue;
+                    }
+                    if (f.exists() && !this.force) {
+                        System.out.println("  -- no need for "
+                                + ze.getName());
+                        LOG.log(Level.FINE, "The file {0} already exists, no need to extract it",
+                                f.getPath());
+                        continue;
+                    }
+                    results.add(pool.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            extract(zf, ze);
+                            return null;
+                        }
+                    }));
+                }
+            }
+
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    if (!(cause instanceof IOException)) {
+                        throw new IllegalStateException(cause);
+                    }
+                    LOG.log(Level.FINE, "Extraction failed: {0}",
+                            cause.getMessage());
+                    if (error == null) {
+                        error = (IOException) cause;
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting", ex);
+        } finally {
+            pool.shutdownNow();
+            for (ZipFile zf : zipfiles) {
+                zf.close();
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Extract one entry of an archive into the folder.
+     * The entry is first written into a ".part" file which is renamed once
+     * its CRC has been checked.
+     * @param zf the ZipFile containing the entry.
+     * @param ze the ZipEntry to extract.
+     * @throws IOException if the entry cannot be read or written, or if its
+     * CRC is not the one recorded in the archive.
+     */
+    private void extract(final ZipFile zf, final ZipEntry ze)
+            throws IOException {
+        final File f = this.getOutputFile(ze);
+        final String outputfile = f.getPath();
+        System.out.println("  Unzipping: " + outputfile);
+        final File part = new File(outputfile + PART_SUFFIX);
+        final File parent = part.getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        final CRC32 crc = new CRC32();
+        final InputStream in = zf.getInputStream(ze);
+        final OutputStream fout = new FileOutputStream(part);
+        try {
+            final byte[] buf = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                crc.update(buf, 0, read);
+                fout.write(buf, 0, read);
+            }
+        } finally {
+            in.close();
+            fout.close();
+        }
+
+        if (ze.getCrc() != -1 && crc.getValue() != ze.getCrc()) {
+            part.delete();
+            throw new ZipException("Invalid CRC for " + ze.getName()
+                    + " in " + zf.getName());
+        }
+        if (f.exists() && !f.delete()) {
+            throw new IOException("Cannot replace " + outputfile);
+        }
+        if (!part.renameTo(f)) {
+            throw new IOException("Cannot rename " + part + " to "
+                    + outputfile);
+        }
+    }
+
+    /**
+     * Return the file into which an entry of an archive is extracted.
+     * @param ze the ZipEntry to extract.
+     * @return the File of the entry in the folder.
+     * @throws IOException if the entry would be extracted outside of the
+     * folder (an absolute name or one containing ".." for example).
+     */
+    private File getOutputFile(final ZipEntry ze) throws IOException {
+        final File f = new File(this.folder, ze.getName());
+        String root = new File(this.folder).getCanonicalPath();
+        if (!root.endsWith(File.separator)) {
+            root = root + File.separator;
+        }
+        if (!f.getCanonicalPath().startsWith(root)) {
+            throw new ZipException("The entry " + ze.getName()
+                    + " is outside of " + this.folder);
+        }
+        return f;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012, Pierre-Yves Chibon
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the Wageningen University nor the names of its
+ * contributors may be used to endorse or promote products derived from
+ * this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ''AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package nl.wur.plantbreeding.gff2RDF;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * Tests the resume of the downloads of DownloadManager against a local HTTP
+ * server honouring Range and If-Range.
+ *
+ * @author Pierre-Yves Chibon -- py@chibon.fr
+ */
+public class DownloadManagerTest extends TestCase {
+
+    /** Number of bytes already downloaded in the ".part" files. */
+    private static final int PART_LENGTH = 400;
+
+    /** The local server. */
+    private HttpServer server;
+    /** The file served. */
+    private byte[] body;
+    /** The ETag of the file served. */
+    private String etag;
+    /** The Range header of the last request, null if there was none. */
+    private String range;
+    /** The status of the last answer. */
+    private int status;
+    /** The folder in which the files are downloaded. */
+    private File folder;
+
+    @Override
+    protected void setUp() throws IOException {
+        this.serve(content('A', 1000), "\"v1\"");
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0),
+                0);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange)
+                    throws IOException {
+                answer(exchange);
+            }
+        });
+        this.server.start();
+        this.folder = Files.createTempDirectory("download").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        this.server.stop(0);
+        for (File f : this.folder.listFiles()) {
+            f.delete();
+        }
+        this.folder.delete();
+    }
+
+    /**
+     * Set the file served.
+     * @param tmpbody the content of the file.
+     * @param tmpetag the ETag of this version of the file.
+     */
+    private void serve(final byte[] tmpbody, final String tmpetag) {
+        this.body = tmpbody;
+        this.etag = tmpetag;
+    }
+
+    /**
+     * Answer a request: the end of the file if the range is asked on the
+     * current version, the whole file otherwise.
+     * @param exchange the HttpExchange of the request.
+     * @throws IOException if the answer cannot be sent.
+     */
+    private synchronized void answer(final HttpExchange exchange)
+            throws IOException {
+        this.range = exchange.getRequestHeaders().getFirst("Range");
+        final String ifrange = exchange.getRequestHeaders().getFirst(
+                "If-Range");
+        int start = 0;
+        this.status = 200;
+        if (this.range != null && this.etag.equals(ifrange)) {
+            start = Integer.parseInt(this.range.substring(
+                    "bytes=".length(), this.range.length() - 1));
+            this.status = 206;
+        }
+        exchange.getResponseHeaders().set("ETag", this.etag);
+        exchange.sendResponseHeaders(this.status, this.body.length - start);
+        final OutputStream out = exchange.getResponseBody();
+        out.write(this.body, start, this.body.length - start);
+        out.close();
+    }
+
+    /**
+     * Return a content made of one repeated byte.
+     * @param c the byte.
+     * @param length the length of the content.
+     * @return the content.
+     */
+    private static byte[] content(final char c, final int length) {
+        final byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) c);
+        return bytes;
+    }
+
+    /**
+     * Write a file.
+     * @param f the File to write.
+     * @param bytes the content of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    private static void write(final File f, final byte[] bytes)
+            throws IOException {
+        final OutputStream out = new FileOutputStream(f);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Leave an interrupted download of the current version of the file.
+     * @param name the name of the file downloaded.
+     * @param validator the version kept with the ".part" file, null for
+     * none.
+     * @throws IOException if the files cannot be written.
+     */
+    private void interrupt(final String name, final String validator)
+            throws IOException {
+        write(new File(this.folder, name + DownloadManager.PART_SUFFIX),
+                Arrays.copyOf(this.body, PART_LENGTH));
+        if (validator != null) {
+            write(new File(this.folder,
+                    name + DownloadManager.VALIDATOR_SUFFIX),
+                    validator.getBytes("UTF-8"));
+        }
+    }
+
+    /**
+     * Download the file served.
+     * @param name the name of the local file.
+     * @return the content of the local file.
+     * @throws IOException if the download fails.
+     */
+    private byte[] download(final String name) throws IOException {
+        final File f = new File(this.folder, name);
+        new DownloadManager(true).download("http://127.0.0.1:"
+                + this.server.getAddress().getPort() + "/" + name,
+                f.getPath());
+        assertFalse(new File(f.getPath() + DownloadManager.PART_SUFFIX)
+                .exists());
+        assertFalse(new File(f.getPath() + DownloadManager.VALIDATOR_SUFFIX)
+                .exists());
+        return Files.readAllBytes(f.toPath());
+    }
+
+    /**
+     * Test that an interrupted download of the same version is resumed.
+     * @throws IOException if the download fails.
+     */
+    public void testResume() throws IOException {
+        this.interrupt("file.txt", this.etag);
+        final byte[] result = this.download("file.txt");
+        assertEquals("bytes=" + PART_LENGTH + "-", this.range);
+        assertEquals(206, this.status);
+        assertTrue(Arrays.equals(this.body, result));
+    }
+
+    /**
+     * Test that the whole file is downloaded again when it changed since
+     * the download was interrupted.
+     * @throws IOException if the download fails.
+     */
+    public void testRestartWhenChanged() throws IOException {
+        this.interrupt("file.txt", this.etag);
+        this.serve(content('B', 1500), "\"v2\"");
+        final byte[] result = this.download("file.txt");
+        assertEquals(200, this.status);
+        assertTrue(Arrays.equals(this.body, result));
+    }
+
+    /**
+     * Test that an interrupted download whose version is unknown starts
+     * again from the beginning.
+     * @throws IOException if the download fails.
+     */
+    public void testRestartWithoutValidator() throws IOException {
+        this.interrupt("file.txt", null);
+        final byte[] result = this.download("file.txt");
+        assertNull(this.range);
+        assertTrue(Arrays.equals(this.body, result));
+    }
+}